@@ -1,10 +1,24 @@
 import java.awt.*;
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The main class for the Turkey Navigation assignment.
@@ -15,43 +29,71 @@ public class AhmetErdemBulut {
     /**
      * The main method of the application. It initializes the city and connection data, asks the user for start
      * and destination cities, calculates the shortest path between them, and draws the map with the path highlighted.
-     * @param args Command line arguments
+     * @param args Command line arguments, optionally the name of a SearchMode such as A_STAR, CH to answer the query
+     *             with a contraction hierarchy saved next to the input files, or TABLE to precompute all distances.
+     *             "BATCH queryFile [outputFile] [mode]" answers every "from,to" line of the query file ("-" for the
+     *             standard input) without drawing and writes CSV lines to the output file or the standard output.
+     *             ALTERNATIVES prints up to three alternative routes after the shortest one.
+     *             "RENDER queryFile outputDirectory [mode]" renders the route of every query line to a PNG file in the
+     *             output directory without opening a window.
      */
     public static void main(String[] args){
-        List<City> cities = new ArrayList<>(); // List to store City objects
-        List<Connection> connections = new ArrayList<>(); // List to store connections between cities
-
-        // Loading city data from file
-        try(Scanner sc = new Scanner(new FileInputStream("city_coordinates.txt"))) {
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] lineSplit = line.split(", ");
-                // Creating City objects and add them to the cities list
-                cities.add(new City(lineSplit[0], Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2])));
-            }
-        }catch (FileNotFoundException e){
-            e.printStackTrace();
+        // Loading the network, from the compiled binary graph file when it is newer than the text files
+        RoadNetwork network = loadNetwork();
+        if (network == null){
             return;
         }
+        List<City> cities = network.getCities(); // Cities in the order of their network index
+        List<Connection> connections = network.getConnections(); // Connections between cities, used for drawing
 
-        // Loading connections data from file
-        try (Scanner inp = new Scanner(new FileInputStream("city_connections.txt"))){
-            while (inp.hasNextLine()){
-                String line = inp.nextLine();
-                String[] cityNames = line.split(",");
-                // Find City objects by name
-                City city1 = toCity(cities, cityNames[0]);
-                City city2 = toCity(cities, cityNames[1]);
+        // Index the city names once so each name is resolved in constant time
+        CityIndex cityIndex = new CityIndex(cities);
+        // Index the city coordinates so points can be snapped to the closest city
+        SpatialIndex spatialIndex = new SpatialIndex(cities);
 
-                // Creating Connection objects and add them to the connections list
-                if (city1 != null && city2 != null){
-                    connections.add(new Connection(city1, city2, Math.sqrt(Math.pow((city1.x - city2.x), 2) + Math.pow((city1.y - city2.y), 2))));
+        // Headless batch mode, answers a whole query file and never opens a drawing window
+        if (args.length > 1 && args[0].equalsIgnoreCase("BATCH")){
+            String mode = args.length > 3 ? args[3] : null;
+            Supplier<PathFinder> factory = pathFinderFactory(mode, network, cities);
+            if (factory == null){
+                return;
+            }
+            // Repeated city pairs are answered from a cache shared by all threads
+            try (RouteCache cache = new RouteCache(network, 100000);
+                 BufferedReader queries = args[1].equals("-") ? new BufferedReader(new InputStreamReader(System.in))
+                    : new BufferedReader(new FileReader(args[1]))){
+                BatchRouting batch = new BatchRouting(cityIndex, spatialIndex, () -> cache.wrap(factory.get()),
+                        Runtime.getRuntime().availableProcessors());
+                if (args.length > 2){
+                    try (PrintStream output = new PrintStream(new FileOutputStream(args[2]), false)){
+                        batch.run(queries, output);
+                    }
                 }
+                else {
+                    batch.run(queries, System.out);
+                    System.out.flush(); // Standard output is flushed, not closed
+                }
+                System.err.printf("Route cache: %d hits, %d misses%n", cache.getHits(), cache.getMisses());
+            } catch (IOException e){
+                e.printStackTrace();
             }
-        }catch (FileNotFoundException e){
-            e.printStackTrace();
             return;
         }
+        boolean showAlternatives = args.length > 0 && args[0].equalsIgnoreCase("ALTERNATIVES");
+        // Headless rendering mode, writes one PNG image per query
+        if (args.length > 2 && args[0].equalsIgnoreCase("RENDER")){
+            Supplier<PathFinder> factory = pathFinderFactory(args.length > 3 ? args[3] : null, network, cities);
+            if (factory != null){
+                renderQueries(args[1], args[2], factory, cityIndex, spatialIndex, cities, connections);
+            }
+            return;
+        }
+        Supplier<PathFinder> factory = pathFinderFactory(args.length > 0 && !showAlternatives ? args[0] : null, network,
+                cities);
+        if (factory == null){
+            return;
+        }
+        PathFinder router = factory.get();
 
         // Scanner for reading user input
         Scanner input = new Scanner(System.in);
@@ -62,12 +104,13 @@ public class AhmetErdemBulut {
             System.out.print("Enter starting city: ");
             String startCityName = input.nextLine();
             String startCityCapitalized = startCityName.toUpperCase().charAt(0) + startCityName.toLowerCase().substring(1);
-            startCity = toCity(cities, startCityName);
+            startCity = findCity(cityIndex, spatialIndex, startCityName);
             if (startCity != null){
                 break; // Exit loop if city is found
             }
             else {
                 System.out.printf("City named '%s' not found. Please enter a valid city name.%n", startCityCapitalized);
+                printSuggestions(cityIndex, startCityName);
             }
         }
 
@@ -76,66 +119,234 @@ public class AhmetErdemBulut {
             System.out.print("Enter destination city: ");
             String endCityName = input.nextLine();
             String endCityCapitalized = endCityName.toUpperCase().charAt(0) + endCityName.toLowerCase().substring(1);
-            endCity = toCity(cities, endCityName);
+            endCity = findCity(cityIndex, spatialIndex, endCityName);
             if (endCity != null){
                 break; // Exit loop if city is found
             }
             else {
                 System.out.printf("City named '%s' not found. Please enter a valid city name.%n", endCityCapitalized);
+                printSuggestions(cityIndex, endCityName);
             }
         }
 
-        // Calculate the shortest path between start and end cities
-        List<City> shortestPath = findPath(cities, connections, startCity, endCity);
+        // Calculate the shortest route between start and end cities
+        Route route = router.findRoute(startCity, endCity);
 
         // Check if a path is found
-        if (shortestPath == null){
+        if (!route.isFound()){
             System.out.println("No path could be found.");
         }
         else {
-            // Calculate total distance of the path
-            double totalDistance = getTotalDistance(shortestPath, connections);
+            List<City> shortestPath = route.path;
             // Display the distance and the path. Used Locale package to display period instead of comma as a decimal separator
-            System.out.printf(Locale.ROOT, "Total distance: %.2f. Path: ", totalDistance);
-            for (int i = 0; i < shortestPath.size(); i++) {
-                System.out.print(shortestPath.get(i).cityName);
-                if (i < shortestPath.size() - 1) {
-                    System.out.print(" -> ");
+            System.out.printf(Locale.ROOT, "Total distance: %.2f. Path: ", route.totalDistance);
+            printPath(shortestPath);
+            if (showAlternatives){
+                // The first route is the shortest one again, the others share at most 80% of their length with it
+                List<Route> alternatives = new AlternativeRoutes(network).findRoutes(startCity, endCity, 4, 0.8);
+                for (int i = 1; i < alternatives.size(); i++) {
+                    System.out.printf(Locale.ROOT, "%nAlternative %d: %.2f. Path: ", i, alternatives.get(i).totalDistance);
+                    printPath(alternatives.get(i).path);
                 }
             }
+            // Report the search effort when a search mode was chosen explicitly
+            else if (args.length > 0){
+                System.out.printf(Locale.ROOT, "%nCities settled by %s: %d in %.3f ms", args[0].toUpperCase(Locale.ROOT),
+                        route.settledCount, route.elapsedNanos / 1e6);
+            }
             // Draw the map, cities, connections, and the shortest path
             drawMap(cities, connections, shortestPath);
         }
     }
 
+    /**
+     * Loads the routing network. If the binary graph file is newer than both text files, it is memory-mapped and used
+     * directly; otherwise the text files are parsed and the binary graph file is written for the next start.
+     * @return The loaded network, or null if the input files could not be read.
+     */
+    private static RoadNetwork loadNetwork(){
+        if (GraphFile.isUpToDate("city_graph.bin", "city_coordinates.txt", "city_connections.txt")){
+            try {
+                return GraphFile.read("city_graph.bin");
+            } catch (IOException e){
+                e.printStackTrace(); // Fall back to the text files
+            }
+        }
+        RoadNetwork network = loadFromText();
+        if (network != null){
+            try {
+                GraphFile.write(network, "city_graph.bin");
+            } catch (IOException e){
+                e.printStackTrace(); // The network is still usable, it just has to be parsed again next time
+            }
+        }
+        return network;
+    }
+
+    /**
+     * Parses the city coordinates and connections text files and compiles them into a network.
+     * @return The network, or null if a file could not be found.
+     */
+    private static RoadNetwork loadFromText(){
+        List<City> cities = new ArrayList<>(); // List to store City objects
+        List<Connection> connections = new ArrayList<>(); // List to store connections between cities
+
+        // Loading city data from file
+        try(Scanner sc = new Scanner(new FileInputStream("city_coordinates.txt"))) {
+            while (sc.hasNextLine()) {
+                String line = sc.nextLine();
+                String[] lineSplit = line.split(", ");
+                // Creating City objects and add them to the cities list
+                cities.add(new City(lineSplit[0], Integer.parseInt(lineSplit[1]), Integer.parseInt(lineSplit[2])));
+            }
+        }catch (FileNotFoundException e){
+            e.printStackTrace();
+            return null;
+        }
+
+        // Index the city names once so each connection line is resolved in constant time
+        CityIndex cityIndex = new CityIndex(cities);
+
+        // Loading connections data from file
+        try (Scanner inp = new Scanner(new FileInputStream("city_connections.txt"))){
+            while (inp.hasNextLine()){
+                String line = inp.nextLine();
+                String[] cityNames = line.split(",");
+                // Find City objects by name
+                City city1 = cityIndex.find(cityNames[0]);
+                City city2 = cityIndex.find(cityNames[1]);
+
+                // Creating Connection objects and add them to the connections list
+                if (city1 != null && city2 != null){
+                    connections.add(new Connection(city1, city2, Math.sqrt(Math.pow((city1.x - city2.x), 2) + Math.pow((city1.y - city2.y), 2))));
+                }
+            }
+        }catch (FileNotFoundException e){
+            e.printStackTrace();
+            return null;
+        }
+
+        // Compile the connections into the routing network
+        return new RoadNetwork(cities, connections);
+    }
+
+    /**
+     * Prepares the routing method selected on the command line and returns a factory for its path finders.
+     * Preprocessing such as building a contraction hierarchy or a distance table is done once, here; the factory then
+     * creates a path finder per caller, since routers keep per-query search state and are not thread-safe.
+     * @param mode Name of a SearchMode, CH, TABLE, or null for plain Dijkstra.
+     * @param network The routing network.
+     * @param cities List of all cities.
+     * @return A factory of path finders for the selected method, or null if the mode is unknown.
+     */
+    private static Supplier<PathFinder> pathFinderFactory(String mode, RoadNetwork network, List<City> cities){
+        if (mode != null && mode.equalsIgnoreCase("CH")){
+            ContractionHierarchy hierarchy = ContractionHierarchy.loadOrBuild(network, "city_connections.ch");
+            return () -> new HierarchyRouter(hierarchy);
+        }
+        if (mode != null && mode.equalsIgnoreCase("TABLE")){
+            // Not immutable, but a change swaps in a whole repaired snapshot, so all threads can share the table
+            DistanceTable table = DistanceTable.allPairs(network, cities);
+            return () -> table;
+        }
+        SearchMode searchMode;
+        try {
+            searchMode = mode == null ? SearchMode.DIJKSTRA : SearchMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e){
+            System.err.printf("Unknown search mode '%s'. Valid modes: %s, CH, TABLE.%n", mode,
+                    Arrays.stream(SearchMode.values()).map(Enum::name).collect(Collectors.joining(", ")));
+            return null;
+        }
+        return () -> {
+            Router router = new Router(network);
+            router.setMode(searchMode);
+            return router;
+        };
+    }
+
+    /**
+     * Answers every "from,to" line of a query file and renders each route to "route_<line>.png" in the output
+     * directory, on all cores. The static part of the map is rasterized once and shared by all threads.
+     * @param queryFile Name of the query file.
+     * @param outputDirectory Directory the images are written to, created if it does not exist.
+     * @param factory Creates the path finder of each thread.
+     * @param cityIndex The index of all city names.
+     * @param spatialIndex The index of all city coordinates.
+     * @param cities List of all cities.
+     * @param connections List of all connections between cities.
+     */
+    private static void renderQueries(String queryFile, String outputDirectory, Supplier<PathFinder> factory,
+                                      CityIndex cityIndex, SpatialIndex spatialIndex, List<City> cities,
+                                      List<Connection> connections){
+        long startTime = System.nanoTime();
+        try {
+            List<String> queries = Files.readAllLines(Paths.get(queryFile));
+            MapRenderer renderer = new MapRenderer(cities, connections, "map.png", 0.5);
+            File directory = new File(outputDirectory);
+            directory.mkdirs();
+            ThreadLocal<PathFinder> pathFinders = ThreadLocal.withInitial(factory);
+            AtomicInteger rendered = new AtomicInteger();
+            IntStream.range(0, queries.size()).parallel().forEach(i -> {
+                String[] ends = queries.get(i).split(",");
+                if (ends.length < 2){
+                    return; // Empty or malformed line
+                }
+                City startCity = cityIndex.find(ends[0]);
+                City endCity = cityIndex.find(ends[1]);
+                startCity = startCity != null ? startCity : spatialIndex.snap(ends[0]);
+                endCity = endCity != null ? endCity : spatialIndex.snap(ends[1]);
+                if (startCity == null || endCity == null){
+                    System.err.printf("Line %d: unknown city%n", i + 1);
+                    return;
+                }
+                Route route = pathFinders.get().findRoute(startCity, endCity);
+                try {
+                    renderer.writePng(route.isFound() ? route.path : new ArrayList<>(),
+                            new File(directory, "route_" + (i + 1) + ".png"));
+                    rendered.incrementAndGet();
+                } catch (IOException e){
+                    e.printStackTrace();
+                }
+            });
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.err.printf(Locale.ROOT, "Rendered %d routes in %.2f s (%.0f routes/s)%n", rendered.get(), seconds,
+                    rendered.get() / seconds);
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Draws the map along with the cities, connections and the shortest path between two selected cities.
+     * The background, cities and connections are taken from the static layer picture, which is rendered once and kept
+     * in map_layer.png; only the path is drawn on top of it.
      * @param cities List of all cities.
      * @param connections List of all connections between cities.
      * @param shortestPath List of cities forming the shortest path between start and end city.
      */
     private static void drawMap(List<City> cities, List<Connection> connections, List<City> shortestPath){
-        // Setting the drawing configurations and the map background
+        // Setting the drawing configurations. Double buffering is enabled before anything is drawn, so the whole map
+        // is shown at once by StdDraw.show() instead of being painted piece by piece
         StdDraw.setCanvasSize(2377/2, 1055/2);
         StdDraw.setXscale(0, 2377);
         StdDraw.setYscale(0, 1055);
-        StdDraw.picture(2377/2.0, 1055/2.0, "map.png", 2377, 1055);
-        StdDraw.enableDoubleBuffering(); // to improve performance
+        StdDraw.enableDoubleBuffering();
 
-        // Loop through the cities to draw each city on the map
-        StdDraw.setPenColor(StdDraw.GRAY);
-        StdDraw.setFont(new Font("Arial", Font.BOLD, 12));
-        for (City city: cities) {
-            // Write city name and draw a filled circle at city's location
-            StdDraw.text(city.x, city.y + 15, city.cityName);
-            StdDraw.filledCircle(city.x, city.y, 5);
+        // Same freshness rule as the binary graph file: rebuild the layer when any of its inputs is newer
+        if (!GraphFile.isUpToDate("map_layer.png", "map.png", "city_coordinates.txt", "city_connections.txt")){
+            try {
+                new MapRenderer(cities, connections, "map.png", 0.5).writeStaticLayer(new File("map_layer.png"));
+            } catch (IOException e){
+                e.printStackTrace(); // Draw the static layer piece by piece instead
+            }
         }
-        // Loop through the connections to draw lines between connected cities
-        for (Connection connection: connections){
-            // Draw a line representing the connection between two cities
-            StdDraw.line(connection.city1.x, connection.city1.y, connection.city2.x, connection.city2.y);
+        if (new File("map_layer.png").isFile()){
+            StdDraw.picture(2377/2.0, 1055/2.0, "map_layer.png", 2377, 1055);
         }
-
+        else {
+            drawStaticLayer(cities, connections);
+        }
+        StdDraw.setFont(new Font("Arial", Font.BOLD, 12));
         StdDraw.setPenColor(StdDraw.BOOK_LIGHT_BLUE);
         // Check if the shortest path has more than one city
         if (shortestPath.size() > 1) {
@@ -165,140 +376,76 @@ public class AhmetErdemBulut {
     }
 
     /**
-     * Calculates the shortest path between two cities using a simplified version of Dijkstra's algorithm.
+     * Draws the background picture, the cities and the connections directly, used when the static layer picture
+     * cannot be written.
      * @param cities List of all cities.
      * @param connections List of all connections between cities.
-     * @param startCity The city from which to start.
-     * @param endCity The destination city.
-     * @return A list of cities forming the shortest path from start to end, or null if no path exists.
      */
-    private static List<City> findPath(List<City> cities, List<Connection> connections, City startCity, City endCity) {
-        // Special case when the start and end cities are the same
-        if (startCity.equals(endCity)){
-            List<City> sameCityPath = new ArrayList<>();
-            sameCityPath.add(startCity);
-            return sameCityPath;
-        }
-
-        boolean[] visited = new boolean[cities.size()]; // Array to store if the cities are visited or not
-        double[] distances = new double[cities.size()]; // Array to store the distances of the cities to start city
-        City[] previous = new City[cities.size()]; // Array to store the preceding city on the path
-
-        for (int i = 0; i < cities.size(); i++) {
-            distances[i] = Double.MAX_VALUE; // initializing the distances to max value
-        }
-
-        distances[indexOfCity(cities, startCity)] = 0; // Adjust the distance of the starting city to itself to 0
-
-        // Loop for arranging the distances between cities and starting city
-        while (true) {
-            int minIndex = -1;
-            double minDistance = Double.MAX_VALUE; // initializing the distance to maximum
-            for (int i = 0; i < cities.size(); i++) {
-                // If it finds an unvisited city whose distance to starting city is minimum, it takes the minimum distance
-                // as its distance and minimum index as its index
-                if (!visited[i] && distances[i] < minDistance) {
-                    minDistance = distances[i];
-                    minIndex = i;
-                }
-            }
-
-            // If there is no unvisited city left or destination city is reached, it breaks out the loop
-            if (minIndex == -1 || cities.get(minIndex).equals(endCity)) {
-                break;
-            }
-
-            visited[minIndex] = true; // setting the city as visited
+    private static void drawStaticLayer(List<City> cities, List<Connection> connections){
+        StdDraw.picture(2377/2.0, 1055/2.0, "map.png", 2377, 1055);
 
-            // Loop through the connections to take the index of the neighbor cities and set their distances to starting cities
-            for (Connection connection : connections) {
-                if (connection.city1.equals(cities.get(minIndex))) {
-                    int neighborIndex = indexOfCity(cities, connection.city2); // index of the neighbor city
-                    double newDistance = distances[minIndex] + connection.distance; // distance of the neighbor to starting city
-                    // If it finds a smaller distance than the value that had been defined before, assign the new value as its distance
-                    if (newDistance < distances[neighborIndex]) {
-                        distances[neighborIndex] = newDistance;
-                        previous[neighborIndex] = cities.get(minIndex);
-                    }
-                }
-                // for the other end of the connection
-                else if (connection.city2.equals(cities.get(minIndex))) {
-                    int neighborIndex = indexOfCity(cities, connection.city1);
-                    double newDistance = distances[minIndex] + connection.distance;
-                    if (newDistance < distances[neighborIndex]) {
-                        distances[neighborIndex] = newDistance;
-                        previous[neighborIndex] = cities.get(minIndex);
-                    }
-                }
-            }
-        }
-        // If the destination city has no neighboring cities, which means there is no path, returns null
-        if (previous[indexOfCity(cities, endCity)] == null){
-            return null;
+        // Loop through the cities to draw each city on the map
+        StdDraw.setPenColor(StdDraw.GRAY);
+        StdDraw.setFont(new Font("Arial", Font.BOLD, 12));
+        for (City city: cities) {
+            // Write city name and draw a filled circle at city's location
+            StdDraw.text(city.x, city.y + 15, city.cityName);
+            StdDraw.filledCircle(city.x, city.y, 5);
         }
-        // Constructing the shortest path from end to start
-        List<City> shortestPath = new ArrayList<>();
-        for (City city = endCity; city != null; city = previous[indexOfCity(cities, city)]){
-            shortestPath.add(0, city);
+        // Loop through the connections to draw lines between connected cities
+        for (Connection connection: connections){
+            // Draw a line representing the connection between two cities
+            StdDraw.line(connection.city1.x, connection.city1.y, connection.city2.x, connection.city2.y);
         }
-        return shortestPath;
-
     }
 
     /**
-     * Calculates the total distance of the shortest path.
-     * @param shortestPath List of cities forming the shortest path.
-     * @param connections List of all connections between cities.
-     * @return The total distance of the path.
+     * Finds the city the user entered, by name or as the closest city to a point given as "x y" in map coordinates.
+     * @param cityIndex The index of all city names.
+     * @param spatialIndex The index of all city coordinates.
+     * @param text The name or point entered by the user.
+     * @return The city, or null if the text is neither a known name nor a point.
      */
-    private static double getTotalDistance(List<City> shortestPath, List<Connection> connections) {
-        double totalDistance = 0; // Initialize total distance
-        // Loop through each pair of cities in the path
-        for (int i = 0; i < shortestPath.size() - 1; i++) {
-            City city1 = shortestPath.get(i);
-            City city2 = shortestPath.get(i + 1);
-            // Find the connection between two cities and add its distance to the total distance
-            for (Connection connection : connections) {
-                if ((connection.city1.equals(city1) && connection.city2.equals(city2)) || (connection.city1.equals(city2) && connection.city2.equals(city1))) {
-                    totalDistance += connection.distance;
-                    break; // Break when the correct connection is found and total distance is incremented
-                }
+    private static City findCity(CityIndex cityIndex, SpatialIndex spatialIndex, String text){
+        City city = cityIndex.find(text);
+        if (city == null){
+            city = spatialIndex.snap(text);
+            if (city != null){
+                System.out.printf("Closest city to %s: %s%n", text.trim(), city.cityName);
             }
         }
-        return totalDistance;
+        return city;
     }
 
     /**
-     * Finds the index of a city in the array of cities based on the city object.
-     * @param cities List of all cities.
-     * @param city The city to find.
-     * @return The index of the city in the array, or -1 if not found.
+     * Prints the names of the cities on a path, separated by arrows.
+     * @param path List of cities forming the path.
      */
-    private static int indexOfCity(List<City> cities, City city){
-        // Loop through the list of cities
-        for (int i = 0; i < cities.size(); i++) {
-            // Return index if the current city matches the target city
-            if (cities.get(i).equals(city)){
-                return i;
+    private static void printPath(List<City> path){
+        for (int i = 0; i < path.size(); i++) {
+            System.out.print(path.get(i).cityName);
+            if (i < path.size() - 1) {
+                System.out.print(" -> ");
             }
         }
-        return -1; // Return -1 if not found
     }
 
     /**
-     * Converts a city name to a City object by searching the array of cities.
-     * @param cities List of all cities.
-     * @param name The name of city to find.
-     * @return The City object matching the name, or null if not found.
+     * Prints the cities whose names are close to a name that was not found, if there are any.
+     * @param cityIndex The index of all city names.
+     * @param name The name that was not found.
      */
-    private static City toCity(List<City> cities, String name){
-        // Loop through the list of cities
-        for (City city : cities){
-            // Return the city if its name matches the target name. case-insensitive
-            if (city.cityName.equalsIgnoreCase(name)){
-                return city;
+    private static void printSuggestions(CityIndex cityIndex, String name){
+        List<City> suggestions = cityIndex.suggest(name, 5);
+        if (!suggestions.isEmpty()){
+            StringBuilder names = new StringBuilder();
+            for (City city : suggestions) {
+                if (names.length() > 0){
+                    names.append(", ");
+                }
+                names.append(city.cityName);
             }
+            System.out.printf("Did you mean: %s?%n", names);
         }
-        return null; // Return null if not found
     }
 }
@@ -0,0 +1,396 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Finds the k shortest loopless routes between two cities with Yen's algorithm, optionally leaving out routes that
+ * share too much road with a shorter one.
+ * Each new route is found by deviating from an earlier route at one of its cities (the spur city): the roads the
+ * earlier routes take from there and the cities before it are blocked, and the rest of the route is searched from the
+ * spur city to the destination. Three things keep these spur searches cheap:
+ * - One full Dijkstra search from the destination is run per query. Blocking roads only makes distances longer, so its
+ *   exact distances are a consistent A* heuristic for every spur search, which then settles little more than the
+ *   cities on its result.
+ * - A route only deviates at or after the city where it deviated from its parent (Lawler's rule), since the earlier
+ *   spur cities were already searched when the parent was processed.
+ * - The search arrays are allocated once and only the touched entries are reset, as in Router.
+ * An AlternativeRoutes object is not thread-safe; use one per thread.
+ */
+public class AlternativeRoutes {
+    private static final int EXAMINED_PER_ROUTE = 20; // Candidate routes examined per requested route when filtering
+
+    private final RoadNetwork network; // The network the queries are answered on
+    private final double[] toTarget; // Exact distance of each city to the destination of the current query
+    private final double[] distances; // Distance of each city from the spur city
+    private final int[] previousArc; // Arc each city is reached with by the spur search, -1 if none
+    private final boolean[] settled; // Whether each city is settled by the current search
+    private final boolean[] blockedCities; // Cities the current spur search may not pass through
+    private final boolean[] blockedArcs; // Roads the current spur search may not take
+    private final IndexMinPQ queue; // Cities waiting to be settled
+    private final int[] touched; // Cities whose entries have to be reset after a search
+    private int touchedCount;
+    private final int[] targetTouched; // Cities whose distance to the destination has to be reset after a query
+    private int targetTouchedCount;
+    private double[] weights; // Road lengths seen by the current query
+    private int settledCount; // Number of cities settled by the current query, all searches together
+
+    /**
+     * Constructs the route finder for the given network.
+     * @param network The network to route on.
+     */
+    public AlternativeRoutes(RoadNetwork network){
+        this.network = network;
+        int n = network.size();
+        toTarget = new double[n];
+        distances = new double[n];
+        previousArc = new int[n];
+        settled = new boolean[n];
+        blockedCities = new boolean[n];
+        blockedArcs = new boolean[network.targets.length];
+        queue = new IndexMinPQ(n);
+        touched = new int[n];
+        targetTouched = new int[n];
+        Arrays.fill(toTarget, Double.MAX_VALUE);
+        Arrays.fill(distances, Double.MAX_VALUE);
+        Arrays.fill(previousArc, -1);
+    }
+
+    /**
+     * Finds the k shortest loopless routes between two cities.
+     * @param startCity The city from which to start.
+     * @param endCity The destination city.
+     * @param k The maximum number of routes.
+     * @return Up to k routes, shortest first. The list is empty if there is no path.
+     */
+    public List<Route> findRoutes(City startCity, City endCity, int k){
+        return findRoutes(startCity, endCity, k, 1);
+    }
+
+    /**
+     * Finds the k shortest loopless routes between two cities that do not overlap too much. A route is only kept if,
+     * compared with every shorter route kept before it, the length of the roads they share is at most maxOverlap times
+     * its own length. Since routes may be skipped, at most 20 * k candidate routes are examined.
+     * @param startCity The city from which to start.
+     * @param endCity The destination city.
+     * @param k The maximum number of routes.
+     * @param maxOverlap The largest allowed share of a route's length that is also part of a kept route, from 0 to 1.
+     * @return Up to k routes, shortest first. The list is empty if there is no path. The settled count and elapsed time
+     * of each route cover the whole query up to the point the route was found.
+     */
+    public List<Route> findRoutes(City startCity, City endCity, int k, double maxOverlap){
+        long startTime = System.nanoTime();
+        int source = network.indexOf(startCity);
+        int target = network.indexOf(endCity);
+        if (source == -1 || target == -1){
+            throw new IllegalArgumentException("City is not part of the network");
+        }
+        List<Route> routes = new ArrayList<>();
+        settledCount = 0;
+        weights = network.weights();
+        try {
+            searchToTarget(target);
+            if (toTarget[source] == Double.MAX_VALUE || k <= 0){
+                return routes;
+            }
+            List<Path> found = new ArrayList<>(); // Every route taken from the candidates, kept or not
+            List<Set<Long>> keptRoads = new ArrayList<>(); // City pairs travelled by each kept route
+            PriorityQueue<Path> candidates = new PriorityQueue<>((a, b) -> Double.compare(a.length, b.length));
+            Set<Path> seen = new HashSet<>(); // Routes that were added to the candidates once
+            Path first = new Path(searchSpur(source, target, new int[0], 0), 0);
+            candidates.add(first);
+            seen.add(first);
+
+            int limit = maxOverlap >= 1 ? k : EXAMINED_PER_ROUTE * k;
+            while (routes.size() < k && found.size() < limit && !candidates.isEmpty()){
+                Path path = candidates.poll();
+                found.add(path);
+                if (isDiverse(path, keptRoads, maxOverlap)){
+                    routes.add(toRoute(source, path, startTime));
+                }
+                if (routes.size() < k){
+                    addSpurPaths(source, target, path, found, candidates, seen);
+                }
+            }
+            return routes;
+        } finally {
+            for (int i = 0; i < targetTouchedCount; i++) {
+                toTarget[targetTouched[i]] = Double.MAX_VALUE;
+            }
+            targetTouchedCount = 0;
+            weights = null;
+        }
+    }
+
+    /**
+     * Adds the deviations of a route to the candidates. For every spur city from the route's own deviation onwards,
+     * the cities before it and the next road of every found route with the same beginning are blocked, and the
+     * shortest rest of the route is searched.
+     * @param source Index of the start city.
+     * @param target Index of the destination city.
+     * @param path The route to deviate from.
+     * @param found The routes found so far, including this one.
+     * @param candidates The candidate routes, shortest first.
+     * @param seen The routes that were candidates once.
+     */
+    private void addSpurPaths(int source, int target, Path path, List<Path> found, PriorityQueue<Path> candidates,
+                              Set<Path> seen){
+        int[] arcs = path.arcs;
+        for (int i = path.deviation; i < arcs.length; i++) {
+            int spur = i == 0 ? source : network.targets[arcs[i - 1]];
+            // The route up to the spur city may not be entered again, which keeps the new route loopless
+            blockedCities[source] = true;
+            for (int j = 0; j < i; j++) {
+                blockedCities[network.targets[arcs[j]]] = true;
+            }
+            blockedCities[spur] = false;
+            for (Path other : found) {
+                if (other.arcs.length > i && sameBeginning(other.arcs, arcs, i)){
+                    blockRoads(spur, network.targets[other.arcs[i]], true);
+                }
+            }
+
+            int[] spurArcs = searchSpur(spur, target, arcs, i);
+            if (spurArcs != null){
+                Path candidate = new Path(spurArcs, i);
+                if (seen.add(candidate)){
+                    candidates.add(candidate);
+                }
+            }
+
+            blockedCities[source] = false;
+            for (int j = 0; j < i; j++) {
+                blockedCities[network.targets[arcs[j]]] = false;
+            }
+            for (Path other : found) {
+                if (other.arcs.length > i && sameBeginning(other.arcs, arcs, i)){
+                    blockRoads(spur, network.targets[other.arcs[i]], false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks or unblocks every road between two cities. The connection list may contain the same road twice, and a
+     * route that only takes the other copy of a road is not a different route.
+     * @param from Index of the city the roads leave from.
+     * @param to Index of the city the roads lead to.
+     * @param blocked Whether the roads are blocked.
+     */
+    private void blockRoads(int from, int to, boolean blocked){
+        for (int arc = network.offsets[from]; arc < network.offsets[from + 1]; arc++) {
+            if (network.targets[arc] == to){
+                blockedArcs[arc] = blocked;
+            }
+        }
+    }
+
+    /**
+     * @param a The roads of one route.
+     * @param b The roads of another route.
+     * @param length Number of roads to compare.
+     * @return Whether both routes start through the same cities.
+     */
+    private boolean sameBeginning(int[] a, int[] b, int length){
+        for (int i = 0; i < length; i++) {
+            if (network.targets[a[i]] != network.targets[b[i]]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs a full Dijkstra search from the destination and stores the distance of every city to it.
+     * @param target Index of the destination city.
+     */
+    private void searchToTarget(int target){
+        int[] offsets = network.offsets;
+        int[] targets = network.targets;
+        toTarget[target] = 0;
+        targetTouched[targetTouchedCount++] = target;
+        queue.insertOrDecrease(target, 0);
+        while (!queue.isEmpty()){
+            int current = queue.delMin();
+            settledCount++;
+            // Every road can be travelled in both directions with the same length, so the leaving arcs can be used
+            for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                int neighbor = targets[arc];
+                double newDistance = toTarget[current] + weights[arc];
+                if (newDistance < toTarget[neighbor]){
+                    if (toTarget[neighbor] == Double.MAX_VALUE){
+                        targetTouched[targetTouchedCount++] = neighbor;
+                    }
+                    toTarget[neighbor] = newDistance;
+                    queue.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs A* from the spur city to the destination, avoiding the blocked cities and roads, with the distance to the
+     * destination as heuristic.
+     * @param spur Index of the spur city.
+     * @param target Index of the destination city.
+     * @param root The roads of the route the search deviates from.
+     * @param rootCount Number of roads of that route up to the spur city, which are kept.
+     * @return The roads of the complete route, or null if the destination cannot be reached.
+     */
+    private int[] searchSpur(int spur, int target, int[] root, int rootCount){
+        int[] offsets = network.offsets;
+        int[] targets = network.targets;
+        try {
+            visit(spur, 0, -1);
+            queue.insertOrDecrease(spur, toTarget[spur]);
+            while (!queue.isEmpty()){
+                int current = queue.delMin();
+                settled[current] = true;
+                settledCount++;
+                if (current == target){
+                    // Join the kept beginning with the roads found by the search
+                    int count = 0;
+                    for (int city = target; previousArc[city] != -1; city = network.arcSource(previousArc[city])) {
+                        count++;
+                    }
+                    int[] arcs = Arrays.copyOf(root, rootCount + count);
+                    for (int city = target; previousArc[city] != -1; city = network.arcSource(previousArc[city])) {
+                        arcs[rootCount + --count] = previousArc[city];
+                    }
+                    return arcs;
+                }
+                for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                    int neighbor = targets[arc];
+                    // Cities that cannot reach the destination even without blocks are skipped right away
+                    if (settled[neighbor] || blockedCities[neighbor] || blockedArcs[arc]
+                            || toTarget[neighbor] == Double.MAX_VALUE){
+                        continue;
+                    }
+                    double newDistance = distances[current] + weights[arc];
+                    if (newDistance < distances[neighbor]){
+                        visit(neighbor, newDistance, arc);
+                        queue.insertOrDecrease(neighbor, newDistance + toTarget[neighbor]);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            for (int i = 0; i < touchedCount; i++) {
+                int city = touched[i];
+                distances[city] = Double.MAX_VALUE;
+                previousArc[city] = -1;
+                settled[city] = false;
+            }
+            touchedCount = 0;
+            queue.clear();
+        }
+    }
+
+    /**
+     * Records a new tentative distance for a city in the spur search.
+     * @param city Index of the city.
+     * @param distance The new distance from the spur city.
+     * @param arc The arc the city is reached with, -1 for the spur city.
+     */
+    private void visit(int city, double distance, int arc){
+        if (distances[city] == Double.MAX_VALUE){
+            touched[touchedCount++] = city;
+        }
+        distances[city] = distance;
+        previousArc[city] = arc;
+    }
+
+    /**
+     * Checks a route against the kept routes and, if it is diverse enough, records its roads as kept.
+     * @param path The route to check.
+     * @param keptRoads The roads of each kept route, as unordered city pairs.
+     * @param maxOverlap The largest allowed share of the route's length that is also part of a kept route.
+     * @return Whether the route is kept.
+     */
+    private boolean isDiverse(Path path, List<Set<Long>> keptRoads, double maxOverlap){
+        long[] roads = new long[path.arcs.length];
+        for (int i = 0; i < roads.length; i++) {
+            int from = network.arcSource(path.arcs[i]);
+            int to = network.targets[path.arcs[i]];
+            roads[i] = (long) Math.min(from, to) * network.size() + Math.max(from, to);
+        }
+        if (maxOverlap < 1){
+            for (Set<Long> kept : keptRoads) {
+                double shared = 0;
+                for (int i = 0; i < roads.length; i++) {
+                    if (kept.contains(roads[i])){
+                        shared += weights[path.arcs[i]];
+                    }
+                }
+                if (shared > maxOverlap * path.length){
+                    return false;
+                }
+            }
+        }
+        Set<Long> set = new HashSet<>();
+        for (long road : roads) {
+            set.add(road);
+        }
+        keptRoads.add(set);
+        return true;
+    }
+
+    /**
+     * Converts a found route to a Route.
+     * @param source Index of the start city.
+     * @param path The roads of the route.
+     * @param startTime Value of System.nanoTime() when the query started.
+     * @return The route.
+     */
+    private Route toRoute(int source, Path path, long startTime){
+        List<City> cities = new ArrayList<>(path.arcs.length + 1);
+        double[] hopDistances = new double[path.arcs.length];
+        cities.add(network.cityAt(source));
+        for (int i = 0; i < path.arcs.length; i++) {
+            cities.add(network.cityAt(network.targets[path.arcs[i]]));
+            hopDistances[i] = weights[path.arcs[i]];
+        }
+        return new Route(cities, hopDistances, path.length, settledCount, System.nanoTime() - startTime, weights);
+    }
+
+    /**
+     * A route as the sequence of arcs it takes, together with the index where it deviated from the route it was
+     * derived from. Two paths are equal if they pass through the same cities.
+     */
+    private class Path {
+        final int[] arcs; // Arcs of the route in travel order
+        final int deviation; // Index of the first arc that differs from the parent route
+        final double length; // Total length of the route
+
+        /**
+         * @param arcs Arcs of the route in travel order.
+         * @param deviation Index of the first arc that differs from the parent route.
+         */
+        Path(int[] arcs, int deviation){
+            this.arcs = arcs;
+            this.deviation = deviation;
+            double sum = 0;
+            for (int arc : arcs) {
+                sum += weights[arc];
+            }
+            length = sum;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            return other instanceof Path && ((Path) other).arcs.length == arcs.length
+                    && sameBeginning(arcs, ((Path) other).arcs, arcs.length);
+        }
+
+        @Override
+        public int hashCode(){
+            int hash = 1;
+            for (int arc : arcs) {
+                hash = hash * 31 + network.targets[arc];
+            }
+            return hash;
+        }
+    }
+}
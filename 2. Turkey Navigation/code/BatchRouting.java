@@ -0,0 +1,186 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Answers many origin/destination queries without any drawing. Queries are read as "from,to" lines and answered in
+ * blocks on a thread pool, each thread reusing its own PathFinder, and the results are written in input order as
+ * "from,to,distance,path" CSV lines while later blocks are still being computed. Instead of a city name, an end of a
+ * query can be a point given as "x y" in map coordinates, which is snapped to the closest city.
+ */
+public class BatchRouting {
+    private static final int BLOCK_SIZE = 1024; // Queries handed to a thread at once
+    private static final int MAX_PENDING_BLOCKS = 64; // Blocks in flight before the reader waits for the writer
+
+    private final CityIndex cityIndex; // Used to resolve the city names of the queries
+    private final SpatialIndex spatialIndex; // Used to snap points to cities, null if points are not accepted
+    private final ThreadLocal<PathFinder> pathFinders; // One path finder per thread, created on first use
+    private final int threadCount;
+    private int queryCount; // Number of queries answered by the last run
+
+    /**
+     * Constructs a batch runner.
+     * @param cityIndex The index of all city names.
+     * @param pathFinderFactory Creates the path finder used by each thread.
+     * @param threadCount Number of threads to answer the queries with.
+     */
+    public BatchRouting(CityIndex cityIndex, Supplier<PathFinder> pathFinderFactory, int threadCount){
+        this(cityIndex, null, pathFinderFactory, threadCount);
+    }
+
+    /**
+     * Constructs a batch runner that also accepts points instead of city names.
+     * @param cityIndex The index of all city names.
+     * @param spatialIndex The index of the city coordinates, null to accept only city names.
+     * @param pathFinderFactory Creates the path finder used by each thread.
+     * @param threadCount Number of threads to answer the queries with.
+     */
+    public BatchRouting(CityIndex cityIndex, SpatialIndex spatialIndex, Supplier<PathFinder> pathFinderFactory,
+                        int threadCount){
+        this.cityIndex = cityIndex;
+        this.spatialIndex = spatialIndex;
+        this.pathFinders = ThreadLocal.withInitial(pathFinderFactory);
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Reads every query from the input, answers them and writes one CSV line per query to the output, after a header
+     * line. Unknown city names are reported as UNKNOWN_CITY and unreachable destinations as NO_PATH in the distance
+     * column. The throughput is reported to the standard error stream at the end.
+     * @param input Source of the "from,to" lines. Empty lines are skipped.
+     * @param output Where the CSV lines are written.
+     * @throws IOException If the input cannot be read.
+     */
+    public void run(BufferedReader input, PrintStream output) throws IOException {
+        long startTime = System.nanoTime();
+        queryCount = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        List<Future<String[]>> pending = new ArrayList<>(); // Blocks in input order, waiting to be written
+        try {
+            output.println("from,to,distance,path");
+            List<String> block = new ArrayList<>(BLOCK_SIZE);
+            String line;
+            while ((line = input.readLine()) != null){
+                if (line.trim().isEmpty()){
+                    continue;
+                }
+                block.add(line);
+                if (block.size() == BLOCK_SIZE){
+                    pending.add(submit(pool, block));
+                    block = new ArrayList<>(BLOCK_SIZE);
+                    // Write the oldest block once enough are in flight, so memory use stays bounded
+                    if (pending.size() >= MAX_PENDING_BLOCKS){
+                        write(pending.remove(0), output);
+                    }
+                }
+            }
+            if (!block.isEmpty()){
+                pending.add(submit(pool, block));
+            }
+            for (Future<String[]> future : pending) {
+                write(future, output);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        output.flush();
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.err.printf(Locale.ROOT, "Answered %d queries in %.2f seconds (%.0f queries/sec) on %d threads%n",
+                queryCount, seconds, queryCount / seconds, threadCount);
+    }
+
+    /**
+     * @return The number of queries answered by the last run.
+     */
+    public int getQueryCount(){
+        return queryCount;
+    }
+
+    /**
+     * Hands a block of queries to the thread pool.
+     * @param pool The thread pool.
+     * @param block The query lines of the block.
+     * @return The future holding the result lines of the block.
+     */
+    private Future<String[]> submit(ExecutorService pool, List<String> block){
+        queryCount += block.size();
+        return pool.submit(() -> {
+            String[] results = new String[block.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = answer(block.get(i));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Waits for a block and writes its result lines.
+     * @param future The future of the block.
+     * @param output Where the lines are written.
+     */
+    private static void write(Future<String[]> future, PrintStream output){
+        try {
+            for (String result : future.get()) {
+                output.println(result);
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch routing was interrupted", e);
+        } catch (ExecutionException e){
+            throw new IllegalStateException("A batch routing query failed", e.getCause());
+        }
+    }
+
+    /**
+     * Answers a single query line with the path finder of the current thread.
+     * @param line The "from,to" query line.
+     * @return The CSV result line.
+     */
+    private String answer(String line){
+        String[] cityNames = line.split(",");
+        String from = cityNames[0].trim();
+        String to = cityNames.length > 1 ? cityNames[1].trim() : "";
+        City startCity = resolve(from);
+        City endCity = resolve(to);
+        if (startCity == null || endCity == null){
+            return from + "," + to + ",UNKNOWN_CITY,";
+        }
+
+        Route route = pathFinders.get().findRoute(startCity, endCity);
+        if (!route.isFound()){
+            return from + "," + to + ",NO_PATH,";
+        }
+        StringBuilder result = new StringBuilder();
+        result.append(from).append(',').append(to).append(',');
+        result.append(String.format(Locale.ROOT, "%.2f", route.totalDistance)).append(',');
+        for (int i = 0; i < route.path.size(); i++) {
+            if (i > 0){
+                result.append(" -> ");
+            }
+            result.append(route.path.get(i).cityName);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Finds the city a query refers to, by name or, if points are accepted, as the closest city to a point.
+     * @param text The city name or point.
+     * @return The city, or null if the text is neither a known name nor a point.
+     */
+    private City resolve(String text){
+        City city = cityIndex.find(text);
+        if (city == null && spatialIndex != null){
+            city = spatialIndex.snap(text);
+        }
+        return city;
+    }
+}
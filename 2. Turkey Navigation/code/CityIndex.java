@@ -0,0 +1,159 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index for finding cities by name. Names are normalized before they are compared: letters are lower-cased without
+ * depending on the default locale, accents are removed and the Turkish letters are mapped to their plain Latin forms,
+ * so the dotted capital I, the dotless small i, and names typed with or without Turkish letters all find the same city.
+ * Exact lookups use a hash map; prefix lookups use binary search over the sorted keys.
+ */
+public class CityIndex {
+    private final Map<String, City> byKey; // Normalized name -> city
+    private final String[] sortedKeys; // Normalized names in alphabetical order
+    private final City[] sortedCities; // sortedCities[i] = the city whose key is sortedKeys[i]
+
+    /**
+     * Builds the index for the given cities. If two cities have the same normalized name, the first one is kept.
+     * @param cities List of all cities.
+     */
+    public CityIndex(List<City> cities){
+        byKey = new HashMap<>(cities.size() * 2);
+        for (City city : cities) {
+            byKey.putIfAbsent(normalize(city.cityName), city);
+        }
+        sortedKeys = byKey.keySet().toArray(new String[0]);
+        Arrays.sort(sortedKeys);
+        sortedCities = new City[sortedKeys.length];
+        for (int i = 0; i < sortedKeys.length; i++) {
+            sortedCities[i] = byKey.get(sortedKeys[i]);
+        }
+    }
+
+    /**
+     * Converts a name to the form used as the key of the index.
+     * @param name The name to normalize.
+     * @return The trimmed name in lower case, without accents and with Turkish letters replaced by Latin ones.
+     */
+    public static String normalize(String name){
+        // Decomposing separates accents and the dot of the dotted capital I from their letters so they can be removed
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK){
+                continue;
+            }
+            if (c == '\u0131'){
+                c = 'i'; // Dotless i has no decomposition
+            }
+            key.append(c);
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds a city by name.
+     * @param name The name of the city to find.
+     * @return The city matching the name, or null if not found.
+     */
+    public City find(String name){
+        return byKey.get(normalize(name));
+    }
+
+    /**
+     * Finds the cities whose names start with the given text, for autocompletion.
+     * @param prefix The beginning of the name.
+     * @param limit The maximum number of cities to return.
+     * @return The matching cities in alphabetical order.
+     */
+    public List<City> withPrefix(String prefix, int limit){
+        String key = normalize(prefix);
+        List<City> matches = new ArrayList<>();
+        // The keys starting with the prefix are next to each other, beginning where the prefix would be inserted
+        int position = Arrays.binarySearch(sortedKeys, key);
+        if (position < 0){
+            position = -position - 1;
+        }
+        while (position < sortedKeys.length && matches.size() < limit && sortedKeys[position].startsWith(key)){
+            matches.add(sortedCities[position++]);
+        }
+        return matches;
+    }
+
+    /**
+     * Suggests cities for a name that was not found. Names starting with the given text come first, followed by the
+     * names that are at most two typing mistakes (insertions, deletions, substitutions or swaps) away.
+     * @param name The name that was not found.
+     * @param limit The maximum number of cities to return.
+     * @return The suggested cities, closest first.
+     */
+    public List<City> suggest(String name, int limit){
+        String key = normalize(name);
+        List<City> suggestions = key.isEmpty() ? new ArrayList<>() : withPrefix(key, limit);
+        // Collect the close names grouped by their distance, so closer ones are suggested first
+        List<List<City>> byDistance = new ArrayList<>();
+        for (int distance = 0; distance <= 2; distance++) {
+            byDistance.add(new ArrayList<>());
+        }
+        for (int i = 0; i < sortedKeys.length; i++) {
+            int distance = editDistance(key, sortedKeys[i], 2);
+            if (distance <= 2 && !suggestions.contains(sortedCities[i])){
+                byDistance.get(distance).add(sortedCities[i]);
+            }
+        }
+        for (List<City> group : byDistance) {
+            for (City city : group) {
+                if (suggestions.size() < limit){
+                    suggestions.add(city);
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Calculates the optimal string alignment distance between two strings, which counts insertions, deletions,
+     * substitutions and swaps of neighboring letters.
+     * @param a The first string.
+     * @param b The second string.
+     * @param max The largest distance of interest; the calculation stops early once it is exceeded.
+     * @return The distance, or max + 1 if it is larger than max.
+     */
+    private static int editDistance(String a, String b, int max){
+        if (Math.abs(a.length() - b.length()) > max){
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1]; // Row i - 2
+        int[] previous = new int[b.length() + 1]; // Row i - 1
+        int[] current = new int[b.length() + 1]; // Row i
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)){
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max){
+                return max + 1;
+            }
+            // Rotate the rows
+            int[] temp = previous2;
+            previous2 = previous;
+            previous = current;
+            current = temp;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
@@ -0,0 +1,478 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A contraction hierarchy built from a RoadNetwork. Cities are contracted one by one in order of importance; when a
+ * city is removed, a shortcut is added between two of its neighbors if the road through it is the only shortest
+ * connection between them. Afterwards every city has a rank, and a shortest path query only has to search upwards
+ * (towards higher ranks) from both ends, which settles a handful of cities instead of the whole graph.
+ * The hierarchy only depends on the network, so it can be saved next to the input files and loaded on the next start.
+ * It is built for the road lengths at one point in time; once a connection of the network changes, isCurrent returns
+ * false and the hierarchy has to be rebuilt before its answers can be trusted again.
+ */
+public class ContractionHierarchy {
+    private static final int FILE_MAGIC = 0x43484E56; // "CHNV", marks a saved hierarchy file
+    private static final int FILE_VERSION = 1;
+    private static final int WITNESS_SETTLE_LIMIT = 500; // Cities a witness search may settle before giving up
+    private static final int SIMULATION_SETTLE_LIMIT = 50; // Smaller limit used when only estimating priorities
+
+    final RoadNetwork network; // The network the hierarchy was built for
+    final int[] ranks; // Contraction order of each city, higher means more important
+    final int[] upOffsets; // CSR offsets of the upward arcs of each city
+    final int[] upTargets; // Higher ranked end of each upward arc
+    final double[] upWeights; // Length of each upward arc
+    final int[] upMiddles; // City a shortcut bypasses, -1 for an original road
+    final double[] builtWeights; // Road lengths of the network the hierarchy was built for
+
+    /**
+     * Constructs a hierarchy from already computed arrays.
+     */
+    private ContractionHierarchy(RoadNetwork network, int[] ranks, int[] upOffsets, int[] upTargets,
+                                 double[] upWeights, int[] upMiddles, double[] builtWeights){
+        this.network = network;
+        this.builtWeights = builtWeights;
+        this.ranks = ranks;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+    }
+
+    /**
+     * Loads the hierarchy from the given file if it exists and belongs to the network, otherwise builds it and saves it
+     * to the file so the next start can skip the preprocessing.
+     * @param network The network to build the hierarchy for.
+     * @param fileName Name of the file the hierarchy is stored in.
+     * @return The hierarchy of the network.
+     */
+    public static ContractionHierarchy loadOrBuild(RoadNetwork network, String fileName){
+        try {
+            ContractionHierarchy hierarchy = load(network, fileName);
+            if (hierarchy != null){
+                return hierarchy;
+            }
+        } catch (IOException e){
+            // Missing or unreadable file, fall back to building the hierarchy
+        }
+        ContractionHierarchy hierarchy = build(network);
+        try {
+            hierarchy.save(fileName);
+        } catch (IOException e){
+            e.printStackTrace(); // The hierarchy is still usable, it just has to be built again next time
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Builds the hierarchy by contracting every city of the network.
+     * @param network The network to build the hierarchy for.
+     * @return The built hierarchy.
+     */
+    public static ContractionHierarchy build(RoadNetwork network){
+        return new Builder(network).build();
+    }
+
+    /**
+     * Saves the hierarchy together with a checksum of the network it was built for.
+     * @param fileName Name of the file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))){
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(network.checksum());
+            out.writeInt(ranks.length);
+            out.writeInt(upTargets.length);
+            for (int rank : ranks) {
+                out.writeInt(rank);
+            }
+            for (int offset : upOffsets) {
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < upTargets.length; i++) {
+                out.writeInt(upTargets[i]);
+                out.writeDouble(upWeights[i]);
+                out.writeInt(upMiddles[i]);
+            }
+        }
+    }
+
+    /**
+     * Loads a saved hierarchy.
+     * @param network The network the hierarchy has to belong to.
+     * @param fileName Name of the file to read.
+     * @return The loaded hierarchy, or null if the file was saved for a different network or format version.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ContractionHierarchy load(RoadNetwork network, String fileName) throws IOException {
+        double[] weights = network.weights();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))){
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION || in.readLong() != network.checksum()){
+                return null;
+            }
+            int n = in.readInt();
+            int arcs = in.readInt();
+            if (n != network.size()){
+                return null;
+            }
+            int[] ranks = new int[n];
+            int[] upOffsets = new int[n + 1];
+            int[] upTargets = new int[arcs];
+            double[] upWeights = new double[arcs];
+            int[] upMiddles = new int[arcs];
+            for (int i = 0; i < n; i++) {
+                ranks[i] = in.readInt();
+            }
+            for (int i = 0; i <= n; i++) {
+                upOffsets[i] = in.readInt();
+            }
+            for (int i = 0; i < arcs; i++) {
+                upTargets[i] = in.readInt();
+                upWeights[i] = in.readDouble();
+                upMiddles[i] = in.readInt();
+            }
+            return new ContractionHierarchy(network, ranks, upOffsets, upTargets, upWeights, upMiddles, weights);
+        }
+    }
+
+    /**
+     * @return Whether no connection of the network has changed since the hierarchy was built.
+     */
+    public boolean isCurrent(){
+        return network.weights() == builtWeights;
+    }
+
+    /**
+     * @return The number of shortcuts the hierarchy added to the network.
+     */
+    public int getShortcutCount(){
+        int count = 0;
+        for (int middle : upMiddles) {
+            if (middle != -1){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends the original cities a hierarchy arc stands for to the path, excluding the first end of the arc, and the
+     * length of every original road to the hop list.
+     * @param from The city the arc is walked from.
+     * @param to The city the arc is walked to.
+     * @param path The path to append the cities to.
+     * @param hops The list to append the road lengths to.
+     */
+    void unpack(int from, int to, List<Integer> path, List<Double> hops){
+        // The arc is stored at the lower ranked end
+        int low = ranks[from] < ranks[to] ? from : to;
+        int high = low == from ? to : from;
+        int found = -1;
+        for (int arc = upOffsets[low]; arc < upOffsets[low + 1]; arc++) {
+            if (upTargets[arc] == high){
+                found = arc;
+                break;
+            }
+        }
+        if (upMiddles[found] == -1){
+            path.add(to);
+            hops.add(upWeights[found]);
+        } else {
+            unpack(from, upMiddles[found], path, hops);
+            unpack(upMiddles[found], to, path, hops);
+        }
+    }
+
+    /**
+     * Contracts the cities of a network one by one and collects the upward arcs of the hierarchy.
+     */
+    private static class Builder {
+        private final RoadNetwork network;
+        private final double[] weights; // Road lengths the hierarchy is built for
+        private final List<List<Edge>> edges; // Remaining edges of each city, including shortcuts
+        private final boolean[] contracted; // Whether each city has been contracted
+        private final int[] contractedNeighbors; // Number of contracted neighbors of each city
+        private final int[] levels; // Length of the longest chain of contracted cities below each city
+        private final int[] ranks;
+        private final List<List<Edge>> upward; // Upward arcs of each city, fixed when it is contracted
+
+        // State of the witness search, reused between searches
+        private final double[] witnessDistances;
+        private final boolean[] witnessTargets; // Neighbors the current witness search has to reach
+        private final int[] witnessTouched;
+        private final IndexMinPQ witnessQueue;
+        private int witnessTouchedCount;
+
+        /**
+         * Copies the roads of the network into modifiable edge lists, keeping the shorter of parallel roads and leaving
+         * out closed roads.
+         * @param network The network to contract.
+         */
+        Builder(RoadNetwork network){
+            this.network = network;
+            weights = network.weights();
+            int n = network.size();
+            edges = new ArrayList<>(n);
+            upward = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                edges.add(new ArrayList<>());
+                upward.add(new ArrayList<>());
+            }
+            for (int city = 0; city < n; city++) {
+                for (int arc = network.offsets[city]; arc < network.offsets[city + 1]; arc++) {
+                    if (network.targets[arc] != city && weights[arc] != Double.POSITIVE_INFINITY){
+                        addEdge(city, network.targets[arc], weights[arc], -1);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            levels = new int[n];
+            ranks = new int[n];
+            witnessDistances = new double[n];
+            witnessTargets = new boolean[n];
+            witnessTouched = new int[n];
+            witnessQueue = new IndexMinPQ(n);
+            Arrays.fill(witnessDistances, Double.MAX_VALUE);
+        }
+
+        /**
+         * Contracts the cities in order of priority. The priorities of the neighbors of a contracted city are
+         * recalculated right away, the others lazily: when a city comes out of the queue its priority is recalculated
+         * and it is put back if it is no longer the smallest.
+         * @return The built hierarchy.
+         */
+        ContractionHierarchy build(){
+            int n = network.size();
+            IndexMinPQ order = new IndexMinPQ(n);
+            for (int city = 0; city < n; city++) {
+                order.insertOrDecrease(city, priority(city));
+            }
+            int rank = 0;
+            while (!order.isEmpty()){
+                int city = order.delMin();
+                double priority = priority(city);
+                if (!order.isEmpty() && priority > order.minKey()){
+                    order.insertOrDecrease(city, priority);
+                    continue;
+                }
+                ranks[city] = rank++;
+                contract(city);
+                // Contracting a city changes the shortcuts its neighbors would need, so their priorities are refreshed
+                for (Edge edge : edges.get(city)) {
+                    if (!contracted[edge.to]){
+                        order.changeKey(edge.to, priority(edge.to));
+                    }
+                }
+            }
+
+            // Compile the upward arcs into CSR arrays
+            int[] upOffsets = new int[n + 1];
+            for (int city = 0; city < n; city++) {
+                upOffsets[city + 1] = upOffsets[city] + upward.get(city).size();
+            }
+            int[] upTargets = new int[upOffsets[n]];
+            double[] upWeights = new double[upOffsets[n]];
+            int[] upMiddles = new int[upOffsets[n]];
+            for (int city = 0; city < n; city++) {
+                int arc = upOffsets[city];
+                for (Edge edge : upward.get(city)) {
+                    upTargets[arc] = edge.to;
+                    upWeights[arc] = edge.weight;
+                    upMiddles[arc] = edge.middle;
+                    arc++;
+                }
+            }
+            return new ContractionHierarchy(network, ranks, upOffsets, upTargets, upWeights, upMiddles, weights);
+        }
+
+        /**
+         * Calculates the contraction priority of a city from its edge difference (shortcuts it would add minus edges
+         * it would remove), the number of neighbors already contracted and its level in the hierarchy so far. The last
+         * two spread the contraction evenly over the map, which keeps the remaining graph sparse.
+         * @param city Index of the city.
+         * @return The priority, smaller is contracted earlier.
+         */
+        private double priority(int city){
+            int removed = 0;
+            for (Edge edge : edges.get(city)) {
+                if (!contracted[edge.to]){
+                    removed++;
+                }
+            }
+            return 2 * (addShortcuts(city, false) - removed) + contractedNeighbors[city] + levels[city];
+        }
+
+        /**
+         * Removes a city from the remaining graph, adding the shortcuts needed to keep the distances between its
+         * neighbors, and records its edges to the remaining neighbors as upward arcs.
+         * @param city Index of the city.
+         */
+        private void contract(int city){
+            addShortcuts(city, true);
+            for (Edge edge : edges.get(city)) {
+                if (!contracted[edge.to]){
+                    upward.get(city).add(edge);
+                    contractedNeighbors[edge.to]++;
+                    levels[edge.to] = Math.max(levels[edge.to], levels[city] + 1);
+                    // The neighbor no longer needs its edge back to the city, which keeps the remaining lists short
+                    edges.get(edge.to).removeIf(back -> back.to == city);
+                }
+            }
+            contracted[city] = true;
+        }
+
+        /**
+         * Finds the shortcuts needed when the city is contracted. For every pair of remaining neighbors, a witness
+         * search looks for a path between them that does not pass the city and is not longer than the path through it.
+         * @param city Index of the city.
+         * @param add Whether the shortcuts are actually added or only counted.
+         * @return The number of shortcuts needed.
+         */
+        private int addShortcuts(int city, boolean add){
+            List<Edge> cityEdges = edges.get(city);
+            int count = 0;
+            for (int i = 0; i < cityEdges.size(); i++) {
+                Edge in = cityEdges.get(i);
+                if (contracted[in.to]){
+                    continue;
+                }
+                // Only the neighbors after this one are checked from here; the longest path to them bounds the search
+                double maxDistance = 0;
+                int targetCount = 0;
+                for (int j = i + 1; j < cityEdges.size(); j++) {
+                    Edge out = cityEdges.get(j);
+                    if (out.to != in.to && !contracted[out.to] && !witnessTargets[out.to]){
+                        maxDistance = Math.max(maxDistance, in.weight + out.weight);
+                        witnessTargets[out.to] = true;
+                        targetCount++;
+                    }
+                }
+                if (targetCount == 0){
+                    continue;
+                }
+                int settleLimit = add ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT;
+                witnessSearch(in.to, city, maxDistance, targetCount, settleLimit);
+                // Each pair is handled once, from the neighbor that comes first in the list
+                for (int j = i + 1; j < cityEdges.size(); j++) {
+                    Edge out = cityEdges.get(j);
+                    if (contracted[out.to] || out.to == in.to){
+                        continue;
+                    }
+                    witnessTargets[out.to] = false;
+                    double viaCity = in.weight + out.weight;
+                    if (witnessDistances[out.to] > viaCity){
+                        count++;
+                        if (add){
+                            addEdge(in.to, out.to, viaCity, city);
+                        }
+                    }
+                }
+                resetWitness();
+            }
+            return count;
+        }
+
+        /**
+         * Runs a limited Dijkstra search from a city over the remaining graph, skipping the city being contracted.
+         * It stops once every target is settled, the distance bound is passed or the settle limit is reached.
+         * @param source Index of the city to start from.
+         * @param excluded Index of the city being contracted.
+         * @param maxDistance Distance after which the search can stop.
+         * @param targetCount Number of cities marked in witnessTargets.
+         * @param settleLimit Number of cities the search may settle.
+         */
+        private void witnessSearch(int source, int excluded, double maxDistance, int targetCount, int settleLimit){
+            witnessTouched[witnessTouchedCount++] = source;
+            witnessDistances[source] = 0;
+            witnessQueue.insertOrDecrease(source, 0);
+            int settledCount = 0;
+            while (!witnessQueue.isEmpty() && settledCount < settleLimit && targetCount > 0){
+                if (witnessQueue.minKey() > maxDistance){
+                    break;
+                }
+                int current = witnessQueue.delMin();
+                settledCount++;
+                if (witnessTargets[current]){
+                    targetCount--;
+                }
+                for (Edge edge : edges.get(current)) {
+                    if (edge.to == excluded || contracted[edge.to]){
+                        continue;
+                    }
+                    double newDistance = witnessDistances[current] + edge.weight;
+                    if (newDistance < witnessDistances[edge.to]){
+                        if (witnessDistances[edge.to] == Double.MAX_VALUE){
+                            witnessTouched[witnessTouchedCount++] = edge.to;
+                        }
+                        witnessDistances[edge.to] = newDistance;
+                        witnessQueue.insertOrDecrease(edge.to, newDistance);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Clears the entries touched by the last witness search.
+         */
+        private void resetWitness(){
+            for (int i = 0; i < witnessTouchedCount; i++) {
+                witnessDistances[witnessTouched[i]] = Double.MAX_VALUE;
+            }
+            witnessTouchedCount = 0;
+            witnessQueue.clear();
+        }
+
+        /**
+         * Adds an undirected edge between two cities, or shortens the existing one if the new edge is shorter.
+         * @param a Index of the first city.
+         * @param b Index of the second city.
+         * @param weight Length of the edge.
+         * @param middle City the edge bypasses, -1 for an original road.
+         */
+        private void addEdge(int a, int b, double weight, int middle){
+            setEdge(a, b, weight, middle);
+            setEdge(b, a, weight, middle);
+        }
+
+        /**
+         * Adds or shortens the edge from one city to another in the first city's list.
+         */
+        private void setEdge(int from, int to, double weight, int middle){
+            for (Edge edge : edges.get(from)) {
+                if (edge.to == to){
+                    if (weight < edge.weight){
+                        edge.weight = weight;
+                        edge.middle = middle;
+                    }
+                    return;
+                }
+            }
+            edges.get(from).add(new Edge(to, weight, middle));
+        }
+    }
+
+    /**
+     * An edge of the graph being contracted, either an original road or a shortcut.
+     */
+    private static class Edge {
+        final int to; // The city the edge leads to
+        double weight; // Length of the edge
+        int middle; // City a shortcut bypasses, -1 for an original road
+
+        Edge(int to, double weight, int middle){
+            this.to = to;
+            this.weight = weight;
+            this.middle = middle;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A dense many-to-many table of shortest path distances between a list of source cities and a list of target cities.
+ * One Dijkstra search is run per source, in parallel on all cores, and each search stops once every target is
+ * settled. The shortest path tree of each source is kept, so paths are only reconstructed when they are asked for.
+ * When connections of the network change, only the rows the change can affect are computed again: a longer or closed
+ * connection affects the rows whose tree uses it, a shorter or reopened one the rows where it shortens the distance of
+ * one of its ends. The repaired rows are published together as a new snapshot, so every lookup reads one consistent
+ * version of the table and the table can be shared between threads.
+ * The table stays registered with the network until it is closed.
+ */
+public class DistanceTable implements PathFinder, RoadNetwork.WeightListener, AutoCloseable {
+    private final RoadNetwork network; // The network the table was computed on
+    private final int[] sources; // Network indices of the source cities
+    private final int[] targets; // Network indices of the target cities
+    private final int[] sourceRows; // Row of each network city in the table, -1 if it is not a source
+    private final int[] targetColumns; // Column of each network city in the table, -1 if it is not a target
+    private volatile Snapshot snapshot; // The current version of the table
+
+    /**
+     * Computes the table between the given cities.
+     * @param network The network to route on.
+     * @param sourceCities The cities the paths start from, one row each.
+     * @param targetCities The cities the paths end at, one column each.
+     */
+    public DistanceTable(RoadNetwork network, List<City> sourceCities, List<City> targetCities){
+        this.network = network;
+        int n = network.size();
+        sources = toIndices(sourceCities);
+        targets = toIndices(targetCities);
+        sourceRows = new int[n];
+        targetColumns = new int[n];
+        Arrays.fill(sourceRows, -1);
+        Arrays.fill(targetColumns, -1);
+        for (int row = 0; row < sources.length; row++) {
+            sourceRows[sources[row]] = row;
+        }
+        for (int column = 0; column < targets.length; column++) {
+            targetColumns[targets[column]] = column;
+        }
+
+        Snapshot table = new Snapshot(network.weights(), new double[sources.length][], new int[sources.length][]);
+        // The searches are independent, so every source row can be filled by a different core
+        IntStream.range(0, sources.length).parallel().forEach(row -> computeRow(table, row));
+        snapshot = table;
+        network.addWeightListener(this);
+    }
+
+    /**
+     * Computes the table between every pair of cities of the network.
+     * @param network The network to route on.
+     * @param cities List of all cities.
+     * @return The all-pairs table.
+     */
+    public static DistanceTable allPairs(RoadNetwork network, List<City> cities){
+        return new DistanceTable(network, cities, cities);
+    }
+
+    /**
+     * Converts cities to their network indices.
+     * @param cities The cities to convert.
+     * @return The index of each city.
+     */
+    private int[] toIndices(List<City> cities){
+        int[] indices = new int[cities.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = network.indexOf(cities.get(i));
+            if (indices[i] == -1){
+                throw new IllegalArgumentException("City is not part of the network");
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from one source until every target is settled and stores the distances and the
+     * shortest path tree of the settled cities.
+     * @param table The snapshot to fill, whose weights are used for the search.
+     * @param row Row of the source in the table.
+     */
+    private void computeRow(Snapshot table, int row){
+        int n = network.size();
+        double[] weights = table.weights;
+        double[] cityDistances = new double[n];
+        int[] previousArc = new int[n];
+        boolean[] settled = new boolean[n];
+        IndexMinPQ queue = new IndexMinPQ(n);
+        Arrays.fill(cityDistances, Double.MAX_VALUE);
+        Arrays.fill(previousArc, -1);
+
+        int remaining = targets.length; // Targets that are not settled yet
+        int source = sources[row];
+        cityDistances[source] = 0;
+        queue.insertOrDecrease(source, 0);
+        while (!queue.isEmpty() && remaining > 0){
+            int current = queue.delMin();
+            settled[current] = true;
+            if (targetColumns[current] != -1){
+                remaining--;
+            }
+            for (int arc = network.offsets[current]; arc < network.offsets[current + 1]; arc++) {
+                int neighbor = network.targets[arc];
+                double newDistance = cityDistances[current] + weights[arc];
+                if (!settled[neighbor] && newDistance < cityDistances[neighbor]){
+                    cityDistances[neighbor] = newDistance;
+                    previousArc[neighbor] = arc;
+                    queue.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+        }
+
+        // Forget the tentative entries of the cities that were still in the queue
+        for (int city = 0; city < n; city++) {
+            if (!settled[city]){
+                cityDistances[city] = Double.MAX_VALUE;
+                previousArc[city] = -1;
+            }
+        }
+        table.distances[row] = cityDistances;
+        table.trees[row] = previousArc;
+    }
+
+    /**
+     * Computes the rows the changed connections can affect again and publishes them as a new snapshot.
+     */
+    @Override
+    public void weightsChanged(List<Connection> connections, double[] oldWeights, double[] newWeights){
+        Snapshot current = snapshot;
+        Snapshot updated = new Snapshot(network.weights(), current.distances.clone(), current.trees.clone());
+        int[][] arcs = new int[connections.size()][];
+        for (int i = 0; i < arcs.length; i++) {
+            arcs[i] = network.arcsOf(connections.get(i));
+        }
+        IntStream.range(0, sources.length).parallel().forEach(row -> {
+            for (int i = 0; i < arcs.length; i++) {
+                if (isAffected(current, row, arcs[i], oldWeights[i], newWeights[i])){
+                    computeRow(updated, row);
+                    return;
+                }
+            }
+        });
+        snapshot = updated;
+    }
+
+    /**
+     * Stops following the changes of the network, so the table can be garbage collected. It keeps answering with the
+     * lengths of its last update.
+     */
+    @Override
+    public void close(){
+        network.removeWeightListener(this);
+    }
+
+    /**
+     * Decides whether a row may be wrong after a connection changed.
+     * @param table The snapshot the row belongs to.
+     * @param row Row of the source.
+     * @param arcs The two arcs of the changed connection.
+     * @param oldWeight The previous length of the connection.
+     * @param newWeight The new length of the connection.
+     * @return Whether the row has to be computed again.
+     */
+    private boolean isAffected(Snapshot table, int row, int[] arcs, double oldWeight, double newWeight){
+        double[] cityDistances = table.distances[row];
+        int[] tree = table.trees[row];
+        for (int arc : arcs) {
+            int from = network.arcSource(arc);
+            int to = network.targets[arc];
+            if (newWeight > oldWeight && tree[to] == arc){
+                return true; // The tree uses the connection, which is now longer
+            }
+            if (newWeight < oldWeight && cityDistances[from] != Double.MAX_VALUE
+                    && cityDistances[from] + newWeight < cityDistances[to]){
+                return true; // The connection now leads to a shorter distance
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of source cities, which is the number of rows.
+     */
+    public int getSourceCount(){
+        return sources.length;
+    }
+
+    /**
+     * @return The number of target cities, which is the number of columns.
+     */
+    public int getTargetCount(){
+        return targets.length;
+    }
+
+    /**
+     * @param row Row of the source city.
+     * @param column Column of the target city.
+     * @return The shortest distance between the two cities, or Double.MAX_VALUE if there is no path.
+     */
+    public double getDistance(int row, int column){
+        return snapshot.distances[row][targets[column]];
+    }
+
+    /**
+     * @param startCity One of the source cities.
+     * @param endCity One of the target cities.
+     * @return The shortest distance between the two cities, or Double.MAX_VALUE if there is no path.
+     */
+    public double getDistance(City startCity, City endCity){
+        return getDistance(rowOf(startCity), columnOf(endCity));
+    }
+
+    /**
+     * Copies the table into a new matrix, for example to feed road distances to a solver that expects a matrix.
+     * @return A sources x targets matrix of distances, Double.MAX_VALUE where there is no path.
+     */
+    public double[][] toMatrix(){
+        Snapshot table = snapshot;
+        double[][] matrix = new double[sources.length][targets.length];
+        for (int row = 0; row < sources.length; row++) {
+            for (int column = 0; column < targets.length; column++) {
+                matrix[row][column] = table.distances[row][targets[column]];
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Reconstructs the shortest route between a source and a target city from the stored shortest path tree.
+     * @param row Row of the source city.
+     * @param column Column of the target city.
+     * @return The route between the two cities, whose path is null if no path exists. Its settled count is 0, since
+     * the table is only read.
+     */
+    public Route getRoute(int row, int column){
+        long startTime = System.nanoTime();
+        Snapshot table = snapshot; // Read once, so the route is not mixed from two versions of the table
+        double totalDistance = table.distances[row][targets[column]];
+        if (totalDistance == Double.MAX_VALUE){
+            return Route.notFound(0, System.nanoTime() - startTime, table.weights);
+        }
+        List<City> path = new ArrayList<>();
+        List<Double> hops = new ArrayList<>();
+        path.add(network.cityAt(targets[column]));
+        int[] tree = table.trees[row];
+        for (int arc = tree[targets[column]]; arc != -1; arc = tree[network.arcSource(arc)]){
+            path.add(network.cityAt(network.arcSource(arc)));
+            hops.add(table.weights[arc]);
+        }
+        Collections.reverse(path);
+        Collections.reverse(hops);
+        double[] hopDistances = new double[hops.size()];
+        for (int i = 0; i < hopDistances.length; i++) {
+            hopDistances[i] = hops.get(i);
+        }
+        return new Route(path, hopDistances, totalDistance, 0, System.nanoTime() - startTime, table.weights);
+    }
+
+    /**
+     * Looks the route up in the table. The start city has to be a source and the end city a target of the table.
+     */
+    @Override
+    public Route findRoute(City startCity, City endCity){
+        return getRoute(rowOf(startCity), columnOf(endCity));
+    }
+
+    /**
+     * @param city The city to find.
+     * @return The row of the city in the table.
+     */
+    private int rowOf(City city){
+        int index = network.indexOf(city);
+        if (index == -1 || sourceRows[index] == -1){
+            throw new IllegalArgumentException("City is not a source of the table");
+        }
+        return sourceRows[index];
+    }
+
+    /**
+     * @param city The city to find.
+     * @return The column of the city in the table.
+     */
+    private int columnOf(City city){
+        int index = network.indexOf(city);
+        if (index == -1 || targetColumns[index] == -1){
+            throw new IllegalArgumentException("City is not a target of the table");
+        }
+        return targetColumns[index];
+    }
+
+    /**
+     * One version of the table. Only settled cities have a distance and a tree arc, the others are left at
+     * Double.MAX_VALUE and -1.
+     */
+    private static class Snapshot {
+        final double[] weights; // Road lengths the rows were computed with
+        final double[][] distances; // distances[row][city], distance of every city from the source of the row
+        final int[][] trees; // trees[row][city], arc the city is reached with from the source of the row, -1 if none
+
+        /**
+         * @param weights Road lengths the rows are computed with.
+         * @param distances Distance array of each row.
+         * @param trees Shortest path tree of each row.
+         */
+        Snapshot(double[] weights, double[][] distances, int[][] trees){
+            this.weights = weights;
+            this.distances = distances;
+            this.trees = trees;
+        }
+    }
+}
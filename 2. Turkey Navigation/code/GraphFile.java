@@ -0,0 +1,145 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes a RoadNetwork in a compiled binary format, so that startup does not have to parse the text files
+ * and resolve city names again. All numbers are little-endian; the file consists of:
+ * <pre>
+ * header       magic, version, city count n, arc count m, name byte count (5 ints)
+ * coordinates  x of each city, y of each city (2n ints)
+ * adjacency    CSR offsets (n + 1 ints), arc targets (m ints), arc weights (m doubles)
+ * string table name offsets (n + 1 ints), UTF-8 bytes of all city names
+ * </pre>
+ * The file is memory-mapped when it is read, so loading is a few bulk copies with no parsing.
+ */
+public class GraphFile {
+    private static final int MAGIC = 0x54524E56; // "TRNV", marks a graph file
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    /**
+     * Checks whether a binary graph file exists and is newer than every text file it was converted from.
+     * @param binaryFile Name of the binary graph file.
+     * @param textFiles Names of the text files.
+     * @return true if the binary file can be used instead of the text files.
+     */
+    public static boolean isUpToDate(String binaryFile, String... textFiles){
+        File binary = new File(binaryFile);
+        if (!binary.isFile()){
+            return false;
+        }
+        for (String textFile : textFiles) {
+            if (new File(textFile).lastModified() > binary.lastModified()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a network to a binary graph file. The original lengths of the connections are written, so closures and
+     * congestion applied at the time are not stored as distances.
+     * @param network The network to write.
+     * @param fileName Name of the file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(RoadNetwork network, String fileName) throws IOException {
+        int n = network.size();
+        int m = network.targets.length;
+        byte[][] names = new byte[n][];
+        int nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            names[i] = network.cityAt(i).cityName.getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[i].length;
+        }
+        long size = HEADER_BYTES + (long) Integer.BYTES * (2L * n + (n + 1) + m + (n + 1))
+                + (long) Double.BYTES * m + nameBytes;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m).putInt(nameBytes);
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(network.cityAt(i).x);
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(network.cityAt(i).y);
+        }
+        buffer.asIntBuffer().put(network.offsets);
+        buffer.position(buffer.position() + Integer.BYTES * (n + 1));
+        buffer.asIntBuffer().put(network.targets);
+        buffer.position(buffer.position() + Integer.BYTES * m);
+        buffer.asDoubleBuffer().put(network.baseWeights());
+        buffer.position(buffer.position() + Double.BYTES * m);
+        int nameOffset = 0;
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(nameOffset);
+            nameOffset += names[i].length;
+        }
+        buffer.putInt(nameOffset);
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+        buffer.flip();
+
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw"); FileChannel channel = file.getChannel()){
+            file.setLength(0);
+            while (buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a network from a binary graph file by memory-mapping it.
+     * @param fileName Name of the file to read.
+     * @return The network stored in the file, with newly created City objects.
+     * @throws IOException If the file cannot be read or is not a graph file of this version.
+     */
+    public static RoadNetwork read(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r"); FileChannel channel = file.getChannel()){
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+                throw new IOException(fileName + " is not a graph file of version " + VERSION);
+            }
+            int n = buffer.getInt();
+            int m = buffer.getInt();
+            int nameBytes = buffer.getInt();
+
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] nameOffsets = new int[n + 1];
+            byte[] names = new byte[nameBytes];
+            // Bulk copies from the mapped file, each advancing the position past the array it read
+            buffer.asIntBuffer().get(xs);
+            buffer.position(buffer.position() + Integer.BYTES * n);
+            buffer.asIntBuffer().get(ys);
+            buffer.position(buffer.position() + Integer.BYTES * n);
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + Integer.BYTES * (n + 1));
+            buffer.asIntBuffer().get(targets);
+            buffer.position(buffer.position() + Integer.BYTES * m);
+            buffer.asDoubleBuffer().get(weights);
+            buffer.position(buffer.position() + Double.BYTES * m);
+            buffer.asIntBuffer().get(nameOffsets);
+            buffer.position(buffer.position() + Integer.BYTES * (n + 1));
+            buffer.get(names);
+
+            City[] cities = new City[n];
+            for (int i = 0; i < n; i++) {
+                String name = new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i],
+                        StandardCharsets.UTF_8);
+                cities[i] = new City(name, xs[i], ys[i]);
+            }
+            return new RoadNetwork(cities, xs, ys, offsets, targets, weights);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers shortest path queries with a ContractionHierarchy. Two Dijkstra searches run from the start and the
+ * destination city and only follow arcs towards higher ranked cities; the shortest path goes through the city where
+ * the sum of both distances is smallest. Shortcuts on that path are then unpacked into the original roads.
+ * If a connection of the network has changed since the hierarchy was built, the hierarchy no longer gives correct
+ * answers, so the query is answered by a bidirectional A* search on the current network instead.
+ * A HierarchyRouter is not thread-safe; use one per thread.
+ */
+public class HierarchyRouter implements PathFinder {
+    private final ContractionHierarchy hierarchy; // The hierarchy the queries are answered on
+    private final UpwardSearch forward; // Upward search from the start city
+    private final UpwardSearch backward; // Upward search from the destination city
+    private int settledCount; // Number of cities settled by the current query, both directions together
+    private Router fallback; // Answers the queries while the hierarchy is out of date, created when first needed
+
+    /**
+     * Constructs a router for the given hierarchy.
+     * @param hierarchy The contraction hierarchy to route on.
+     */
+    public HierarchyRouter(ContractionHierarchy hierarchy){
+        this.hierarchy = hierarchy;
+        forward = new UpwardSearch(hierarchy.network.size());
+        backward = new UpwardSearch(hierarchy.network.size());
+    }
+
+    @Override
+    public Route findRoute(City startCity, City endCity){
+        if (!hierarchy.isCurrent()){
+            if (fallback == null){
+                fallback = new Router(hierarchy.network);
+                fallback.setMode(SearchMode.BIDIRECTIONAL_A_STAR);
+            }
+            return fallback.findRoute(startCity, endCity);
+        }
+        long startTime = System.nanoTime();
+        RoadNetwork network = hierarchy.network;
+        int source = network.indexOf(startCity);
+        int target = network.indexOf(endCity);
+        if (source == -1 || target == -1){
+            throw new IllegalArgumentException("City is not part of the network");
+        }
+        settledCount = 0;
+        try {
+            forward.start(source);
+            backward.start(target);
+            double best = Double.MAX_VALUE; // Length of the shortest path found so far
+            int meeting = -1; // Highest ranked city on that path
+            // Alternate between the two searches; each one stops once its smallest key cannot improve the best path
+            while (true){
+                boolean forwardActive = !forward.queue.isEmpty() && forward.queue.minKey() < best;
+                boolean backwardActive = !backward.queue.isEmpty() && backward.queue.minKey() < best;
+                if (!forwardActive && !backwardActive){
+                    break;
+                }
+                UpwardSearch space = forwardActive && (!backwardActive
+                        || forward.queue.minKey() <= backward.queue.minKey()) ? forward : backward;
+                UpwardSearch other = space == forward ? backward : forward;
+                int current = space.settle();
+                settledCount++;
+                if (other.distances[current] != Double.MAX_VALUE){
+                    double length = space.distances[current] + other.distances[current];
+                    if (length < best){
+                        best = length;
+                        meeting = current;
+                    }
+                }
+            }
+            if (meeting == -1){
+                return Route.notFound(settledCount, System.nanoTime() - startTime, hierarchy.builtWeights);
+            }
+            return buildRoute(source, meeting, best, startTime);
+        } finally {
+            forward.reset();
+            backward.reset();
+        }
+    }
+
+    /**
+     * Constructs the route through the meeting city and unpacks every shortcut on it into the original roads.
+     * @param source Index of the start city.
+     * @param meeting Index of the city where the two upward searches meet.
+     * @param totalDistance Length of the path found by the searches.
+     * @param startTime Value of System.nanoTime() when the query started.
+     * @return The route from start to end.
+     */
+    private Route buildRoute(int source, int meeting, double totalDistance, long startTime){
+        // Hierarchy cities from the start city up to the meeting city
+        List<Integer> upPath = new ArrayList<>();
+        for (int city = meeting; city != -1; city = forward.previous[city]){
+            upPath.add(city);
+        }
+        List<Integer> path = new ArrayList<>();
+        List<Double> hops = new ArrayList<>();
+        path.add(source);
+        for (int i = upPath.size() - 1; i > 0; i--) {
+            hierarchy.unpack(upPath.get(i), upPath.get(i - 1), path, hops);
+        }
+        // Hierarchy cities from the meeting city down to the destination
+        for (int city = meeting; backward.previous[city] != -1; city = backward.previous[city]){
+            hierarchy.unpack(city, backward.previous[city], path, hops);
+        }
+
+        List<City> cities = new ArrayList<>(path.size());
+        for (int city : path) {
+            cities.add(hierarchy.network.cityAt(city));
+        }
+        double[] hopDistances = new double[hops.size()];
+        for (int i = 0; i < hopDistances.length; i++) {
+            hopDistances[i] = hops.get(i);
+        }
+        return new Route(cities, hopDistances, totalDistance, settledCount, System.nanoTime() - startTime,
+                hierarchy.builtWeights);
+    }
+
+    /**
+     * The state of one upward search. The arrays are indexed by city and keep their reset values between queries.
+     */
+    private class UpwardSearch {
+        final double[] distances; // Distance of each city to the city the search started from
+        final int[] previous; // Preceding hierarchy city of each city, -1 if none
+        final IndexMinPQ queue; // Cities waiting to be settled
+        private final int[] touched; // Cities whose entries have to be reset after the query
+        private int touchedCount;
+
+        /**
+         * Constructs the search state for a network with the given number of cities.
+         * @param n Number of cities.
+         */
+        UpwardSearch(int n){
+            distances = new double[n];
+            previous = new int[n];
+            queue = new IndexMinPQ(n);
+            touched = new int[n];
+            Arrays.fill(distances, Double.MAX_VALUE);
+            Arrays.fill(previous, -1);
+        }
+
+        /**
+         * Puts the city the search starts from into the queue.
+         * @param city Index of the city.
+         */
+        void start(int city){
+            touched[touchedCount++] = city;
+            distances[city] = 0;
+            queue.insertOrDecrease(city, 0);
+        }
+
+        /**
+         * Settles the closest city in the queue and relaxes its upward arcs.
+         * @return Index of the settled city.
+         */
+        int settle(){
+            int current = queue.delMin();
+            for (int arc = hierarchy.upOffsets[current]; arc < hierarchy.upOffsets[current + 1]; arc++) {
+                int neighbor = hierarchy.upTargets[arc];
+                double newDistance = distances[current] + hierarchy.upWeights[arc];
+                if (newDistance < distances[neighbor]){
+                    if (distances[neighbor] == Double.MAX_VALUE){
+                        touched[touchedCount++] = neighbor;
+                    }
+                    distances[neighbor] = newDistance;
+                    previous[neighbor] = current;
+                    queue.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+            return current;
+        }
+
+        /**
+         * Clears the entries touched by the last query so the arrays can be reused.
+         */
+        void reset(){
+            for (int i = 0; i < touchedCount; i++) {
+                distances[touched[i]] = Double.MAX_VALUE;
+                previous[touched[i]] = -1;
+            }
+            touchedCount = 0;
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * An indexed binary min-heap over the integers 0 to capacity - 1, keyed by a double priority.
+ * It supports decreasing the key of an index already in the heap, which is what Dijkstra's algorithm needs when it
+ * finds a shorter distance to a city that is still waiting to be settled.
+ */
+public class IndexMinPQ {
+    private final int[] heap; // heap[position] = index stored at that position of the binary heap
+    private final int[] positions; // positions[index] = position of the index in the heap, -1 if it is not in the heap
+    private final double[] keys; // keys[index] = priority of the index
+    private int size; // Number of indices in the heap
+
+    /**
+     * Constructs an empty heap that can hold the indices 0 to capacity - 1.
+     * @param capacity The number of distinct indices the heap can hold.
+     */
+    public IndexMinPQ(int capacity){
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * @return true if there are no indices in the heap.
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * @param index The index to check.
+     * @return true if the index is currently in the heap.
+     */
+    public boolean contains(int index){
+        return positions[index] != -1;
+    }
+
+    /**
+     * @return The smallest key in the heap. The heap must not be empty.
+     */
+    public double minKey(){
+        return keys[heap[0]];
+    }
+
+    /**
+     * Inserts the index with the given key, or decreases its key if it is already in the heap.
+     * A larger key than the current one is ignored.
+     * @param index The index to insert or update.
+     * @param key The new key of the index.
+     */
+    public void insertOrDecrease(int index, double key){
+        if (positions[index] == -1){
+            heap[size] = index;
+            positions[index] = size;
+            keys[index] = key;
+            siftUp(size++);
+        } else if (key < keys[index]){
+            keys[index] = key;
+            siftUp(positions[index]);
+        }
+    }
+
+    /**
+     * Changes the key of an index that is in the heap, in either direction.
+     * @param index The index to update.
+     * @param key The new key of the index.
+     */
+    public void changeKey(int index, double key){
+        keys[index] = key;
+        siftUp(positions[index]);
+        siftDown(positions[index]);
+    }
+
+    /**
+     * Removes the index with the smallest key from the heap.
+     * @return The removed index.
+     */
+    public int delMin(){
+        int min = heap[0];
+        size--;
+        positions[min] = -1;
+        if (size > 0){
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes every index from the heap so it can be reused for another search.
+     */
+    public void clear(){
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the element at the given position up until its parent is not larger.
+     * @param position Position in the heap to start from.
+     */
+    private void siftUp(int position){
+        int index = heap[position];
+        double key = keys[index];
+        while (position > 0){
+            int parent = (position - 1) >>> 1;
+            if (keys[heap[parent]] <= key){
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = index;
+        positions[index] = position;
+    }
+
+    /**
+     * Moves the element at the given position down until none of its children is smaller.
+     * @param position Position in the heap to start from.
+     */
+    private void siftDown(int position){
+        int index = heap[position];
+        double key = keys[index];
+        while (true){
+            int child = 2 * position + 1;
+            if (child >= size){
+                break;
+            }
+            // Pick the smaller of the two children
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]){
+                child++;
+            }
+            if (keys[heap[child]] >= key){
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = index;
+        positions[index] = position;
+    }
+}
@@ -0,0 +1,194 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders routes onto the map without a window. The static layer (the background picture, every city and every
+ * connection) is rasterized once into an offscreen image; a route image is a copy of that layer with only the path
+ * drawn on top, so rendering a route costs one image copy and a few lines instead of a full redraw. PNG files are
+ * written with a PngWriter that keeps the static layer compressed, so only the rows the path touches are compressed
+ * again.
+ * The drawing matches the StdDraw window of the application: gray cities with their names above them, thin gray
+ * connection lines and the path highlighted in light blue. Sizes are given in map units and multiplied by the scale,
+ * where a scale of 0.5 gives the size of the window.
+ * A renderer only reads its static layer after construction, so it can be shared between threads.
+ */
+public class MapRenderer {
+    public static final int MAP_WIDTH = 2377; // Width of the map in map units, the size of map.png
+    public static final int MAP_HEIGHT = 1055; // Height of the map in map units
+    private static final Color CITY_COLOR = Color.GRAY; // StdDraw.GRAY
+    private static final Color PATH_COLOR = new Color(103, 198, 243); // StdDraw.BOOK_LIGHT_BLUE
+    private static final double CITY_RADIUS = 5; // Radius of a city circle
+    private static final double LABEL_OFFSET = 15; // Distance of a city name above its city
+    private static final double FONT_SIZE = 24; // Size of the city names, 12 points in the window
+    private static final double LINE_WIDTH = 2.048; // Width of a connection, the default StdDraw pen in the window
+    private static final double PATH_WIDTH = 6.144; // Width of the highlighted path, pen radius 0.006 in the window
+
+    private final double scale; // Image pixels per map unit
+    private final BufferedImage staticLayer; // Background, cities and connections
+    private final PngWriter pngWriter; // Writes images that differ from the static layer
+
+    /**
+     * Rasterizes the static layer.
+     * @param cities List of all cities.
+     * @param connections List of all connections between cities.
+     * @param backgroundFile Name of the background picture, stretched over the whole map.
+     * @param scale Image pixels per map unit, 0.5 for the size of the window.
+     * @throws IOException If the background picture cannot be read.
+     */
+    public MapRenderer(List<City> cities, List<Connection> connections, String backgroundFile, double scale)
+            throws IOException {
+        this.scale = scale;
+        BufferedImage background = ImageIO.read(new File(backgroundFile));
+        if (background == null){
+            throw new IOException("Unsupported image format: " + backgroundFile);
+        }
+        staticLayer = new BufferedImage((int) (MAP_WIDTH * scale), (int) (MAP_HEIGHT * scale),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = createGraphics(staticLayer);
+        g.drawImage(background, 0, 0, staticLayer.getWidth(), staticLayer.getHeight(), null);
+
+        // Cities first and connections on top of them, in the same order as the window
+        g.setColor(CITY_COLOR);
+        for (City city : cities) {
+            drawCity(g, city);
+        }
+        g.setStroke(stroke(LINE_WIDTH));
+        for (Connection connection : connections) {
+            drawLine(g, connection.city1, connection.city2);
+        }
+        g.dispose();
+        pngWriter = new PngWriter(staticLayer);
+    }
+
+    /**
+     * @return The rasterized static layer. It must not be modified.
+     */
+    public BufferedImage getStaticLayer(){
+        return staticLayer;
+    }
+
+    /**
+     * Renders a route: the static layer with the path highlighted on top.
+     * @param path List of cities forming the path, may be empty.
+     * @return A new image of the map with the path.
+     */
+    public BufferedImage render(List<City> path){
+        BufferedImage image = new BufferedImage(staticLayer.getWidth(), staticLayer.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        // Copy the pixels of the static layer directly, no scaling or blending is needed
+        staticLayer.copyData(image.getRaster());
+        Graphics2D g = createGraphics(image);
+        g.setColor(PATH_COLOR);
+        g.setStroke(stroke(PATH_WIDTH));
+        for (int i = 0; i < path.size() - 1; i++) {
+            drawLine(g, path.get(i), path.get(i + 1));
+        }
+        for (City city : path) {
+            drawCity(g, city);
+        }
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Renders a route and writes it as a PNG image.
+     * @param path List of cities forming the path, may be empty.
+     * @param out Where the PNG image is written. It is not closed.
+     * @throws IOException If the image cannot be written.
+     */
+    public void writePng(List<City> path, OutputStream out) throws IOException {
+        pngWriter.write(render(path), out);
+    }
+
+    /**
+     * Renders a route and writes it to a PNG file.
+     * @param path List of cities forming the path, may be empty.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writePng(List<City> path, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))){
+            writePng(path, out);
+        }
+    }
+
+    /**
+     * Writes the static layer to a PNG file, so it can be shown as the background picture of a window.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeStaticLayer(File file) throws IOException {
+        writePng(new ArrayList<>(), file);
+    }
+
+    /**
+     * Creates a graphics context with the rendering settings of StdDraw and the font of the city names.
+     * @param image The image to draw on.
+     * @return The graphics context.
+     */
+    private Graphics2D createGraphics(BufferedImage image){
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setFont(new Font("Arial", Font.BOLD, (int) Math.round(FONT_SIZE * scale)));
+        return g;
+    }
+
+    /**
+     * @param width Width of the line in map units.
+     * @return A stroke with round ends, as StdDraw uses.
+     */
+    private BasicStroke stroke(double width){
+        return new BasicStroke((float) (width * scale), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    }
+
+    /**
+     * Draws a city as a filled circle with its name centered above it.
+     * @param g The graphics context.
+     * @param city The city to draw.
+     */
+    private void drawCity(Graphics2D g, City city){
+        double radius = CITY_RADIUS * scale;
+        g.fill(new Ellipse2D.Double(toX(city.x) - radius, toY(city.y) - radius, 2 * radius, 2 * radius));
+        FontMetrics metrics = g.getFontMetrics();
+        float x = (float) (toX(city.x) - metrics.stringWidth(city.cityName) / 2.0);
+        float y = (float) (toY(city.y + LABEL_OFFSET) + metrics.getDescent());
+        g.drawString(city.cityName, x, y);
+    }
+
+    /**
+     * Draws a straight line between two cities.
+     * @param g The graphics context.
+     * @param city1 One end of the line.
+     * @param city2 The other end of the line.
+     */
+    private void drawLine(Graphics2D g, City city1, City city2){
+        g.draw(new Line2D.Double(toX(city1.x), toY(city1.y), toX(city2.x), toY(city2.y)));
+    }
+
+    /**
+     * @param x X coordinate in map units.
+     * @return The horizontal pixel position.
+     */
+    private double toX(double x){
+        return x * scale;
+    }
+
+    /**
+     * @param y Y coordinate in map units, growing upwards.
+     * @return The vertical pixel position, growing downwards.
+     */
+    private double toY(double y){
+        return (MAP_HEIGHT - y) * scale;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Something that can answer shortest path queries between two cities, such as a Router or a HierarchyRouter.
+ */
+public interface PathFinder {
+    /**
+     * Calculates the shortest route between two cities.
+     * @param startCity The city from which to start.
+     * @param endCity The destination city.
+     * @return The route with the path, the length of every road on it and the search statistics. If no path exists,
+     * the path of the route is null.
+     */
+    Route findRoute(City startCity, City endCity);
+}
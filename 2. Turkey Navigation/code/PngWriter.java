@@ -0,0 +1,231 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes PNG images that differ from a fixed base image in only a few places, such as route images drawn over the same
+ * static map layer. Compressing a whole map takes far longer than drawing a route on it, so the base image is cut into
+ * bands of rows that are compressed once, each as an independent piece of the deflate stream. An image is then
+ * written by compressing only the bands whose pixels differ from the base and copying the stored bytes of all others.
+ * Rows use the Sub filter, which only looks at the same row, so a band never depends on the rows of its neighbors.
+ * A writer only reads its stored bands after construction, so it can be shared between threads.
+ */
+public class PngWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BAND_HEIGHT = 16; // Rows per independently compressed band
+    private static final int ADLER_BASE = 65521; // Modulus of the Adler-32 checksum
+
+    private final int width, height;
+    private final int[] basePixels; // Pixels of the base image, row by row
+    private final byte[][] bands; // Compressed bytes of each band of the base image
+    private final long[] bandChecksums; // Adler-32 checksum of the uncompressed bytes of each band
+
+    /**
+     * Compresses every band of the base image.
+     * @param base The base image, of type BufferedImage.TYPE_INT_RGB. It must not change afterwards.
+     */
+    public PngWriter(BufferedImage base){
+        width = base.getWidth();
+        height = base.getHeight();
+        basePixels = pixels(base);
+        int bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        bands = new byte[bandCount][];
+        bandChecksums = new long[bandCount];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            byte[] raw = new byte[BAND_HEIGHT * (1 + 3 * width)];
+            for (int band = 0; band < bandCount; band++) {
+                int length = filterBand(basePixels, band, raw);
+                bands[band] = compress(deflater, raw, length);
+                bandChecksums[band] = adler32(raw, length);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes an image as a PNG file. Bands that are identical to the base image are copied from the stored bands.
+     * @param image The image to write, of type BufferedImage.TYPE_INT_RGB and the size of the base image.
+     * @param out Where the PNG bytes are written. It is not closed.
+     * @throws IOException If the bytes cannot be written.
+     */
+    public void write(BufferedImage image, OutputStream out) throws IOException {
+        if (image.getWidth() != width || image.getHeight() != height){
+            throw new IllegalArgumentException("Image size differs from the base image");
+        }
+        int[] pixels = pixels(image);
+        ByteArrayOutputStream data = new ByteArrayOutputStream(totalLength());
+        data.write(0x78); // zlib header: deflate with a 32 KB window
+        data.write(0x01); // Fastest compression, header checksum
+        long checksum = 1; // Adler-32 of nothing
+        Deflater deflater = null;
+        byte[] raw = null;
+        try {
+            for (int band = 0; band < bands.length; band++) {
+                int from = band * BAND_HEIGHT * width;
+                int to = Math.min(height, (band + 1) * BAND_HEIGHT) * width;
+                long length = (long) (to - from) / width * (1 + 3 * width);
+                if (Arrays.equals(pixels, from, to, basePixels, from, to)){
+                    data.write(bands[band]);
+                    checksum = combine(checksum, bandChecksums[band], length);
+                } else {
+                    if (deflater == null){
+                        deflater = new Deflater(Deflater.BEST_SPEED, true);
+                        raw = new byte[BAND_HEIGHT * (1 + 3 * width)];
+                    }
+                    int rawLength = filterBand(pixels, band, raw);
+                    data.write(compress(deflater, raw, rawLength));
+                    checksum = combine(checksum, adler32(raw, rawLength), length);
+                }
+            }
+        } finally {
+            if (deflater != null){
+                deflater.end();
+            }
+        }
+        data.write(0x03); // An empty final block with fixed codes closes the deflate stream
+        data.write(0x00);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            data.write((int) (checksum >>> shift));
+        }
+
+        DataOutputStream png = new DataOutputStream(out);
+        png.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.write(new byte[]{8, 2, 0, 0, 0}); // 8 bits per sample, RGB, deflate, adaptive filters, no interlace
+        writeChunk(png, "IHDR", header.toByteArray());
+        writeChunk(png, "IDAT", data.toByteArray());
+        writeChunk(png, "IEND", new byte[0]);
+        png.flush();
+    }
+
+    /**
+     * @param image An image of type BufferedImage.TYPE_INT_RGB.
+     * @return The pixel array of the image, without copying it.
+     */
+    private static int[] pixels(BufferedImage image){
+        if (image.getType() != BufferedImage.TYPE_INT_RGB){
+            throw new IllegalArgumentException("Only TYPE_INT_RGB images are supported");
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Converts the rows of a band to PNG scanlines with the Sub filter: every byte is stored as the difference to the
+     * same color byte of the pixel on its left.
+     * @param pixels Pixels of the image, row by row.
+     * @param band Index of the band.
+     * @param raw Array the scanlines are written to.
+     * @return Number of bytes written.
+     */
+    private int filterBand(int[] pixels, int band, byte[] raw){
+        int length = 0;
+        int lastRow = Math.min(height, (band + 1) * BAND_HEIGHT);
+        for (int row = band * BAND_HEIGHT; row < lastRow; row++) {
+            raw[length++] = 1; // Filter type Sub
+            int previous = 0;
+            for (int i = row * width; i < (row + 1) * width; i++) {
+                int pixel = pixels[i];
+                raw[length++] = (byte) ((pixel >> 16) - (previous >> 16));
+                raw[length++] = (byte) ((pixel >> 8) - (previous >> 8));
+                raw[length++] = (byte) (pixel - previous);
+                previous = pixel;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Compresses a band as raw deflate blocks ending on a byte boundary, with the dictionary cleared afterwards so the
+     * blocks can be placed after any other band.
+     * @param deflater The deflater to use, without zlib wrapping.
+     * @param raw The uncompressed bytes.
+     * @param length Number of bytes to compress.
+     * @return The compressed bytes.
+     */
+    private static byte[] compress(Deflater deflater, byte[] raw, int length){
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+        byte[] buffer = new byte[16384];
+        int count;
+        // A full flush empties the input and ends the output on a byte boundary without a final block; the output is
+        // complete once a call no longer fills the whole buffer
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.FULL_FLUSH);
+            out.write(buffer, 0, count);
+        } while (count == buffer.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param raw The bytes to check.
+     * @param length Number of bytes to check.
+     * @return The Adler-32 checksum of the bytes.
+     */
+    private static long adler32(byte[] raw, int length){
+        Adler32 adler = new Adler32();
+        adler.update(raw, 0, length);
+        return adler.getValue();
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive pieces of data into the checksum of both, as zlib's
+     * adler32_combine does.
+     * @param first Checksum of the first piece.
+     * @param second Checksum of the second piece.
+     * @param secondLength Length of the second piece.
+     * @return Checksum of the first piece followed by the second.
+     */
+    private static long combine(long first, long second, long secondLength){
+        long remainder = secondLength % ADLER_BASE;
+        long sum1 = first & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (first >>> 16) + (second >>> 16) + ADLER_BASE - remainder;
+        sum1 %= ADLER_BASE;
+        sum2 %= ADLER_BASE;
+        return (sum2 << 16) | sum1;
+    }
+
+    /**
+     * @return The length of the stored bands together, a good first guess of the size of the image data.
+     */
+    private int totalLength(){
+        int total = 64;
+        for (byte[] band : bands) {
+            total += band.length;
+        }
+        return total;
+    }
+
+    /**
+     * Writes one PNG chunk: its length, type, data and the CRC of type and data.
+     * @param out Where the chunk is written.
+     * @param type The four letter chunk type.
+     * @param data The chunk data.
+     * @throws IOException If the chunk cannot be written.
+     */
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+}
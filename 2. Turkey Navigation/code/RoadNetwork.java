@@ -0,0 +1,389 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A compact form of the city graph used by the routing code.
+ * Cities are numbered once, in the order of the city list, and the connections are compiled into a compressed
+ * sparse row (CSR) adjacency: the roads leaving city i are the arcs offsets[i] to offsets[i + 1] - 1, with their
+ * neighbor in targets and their length in the weights array. Every connection is stored as two arcs, one in each
+ * direction.
+ * The structure never changes, but the length of a connection can be changed or the connection closed while queries
+ * are running. The weights array is copy-on-write: an update builds a new array and publishes it at once, so a search
+ * that took the array with weights() at its start sees one consistent set of lengths until it finishes.
+ */
+public class RoadNetwork {
+    private final City[] cities; // cities[i] = the city with index i
+    private final Map<City, Integer> indices; // City object -> its index
+    private final int[] xs, ys; // Map coordinates of each city
+    private final Connection[] connections; // connections[id] = the connection with that id
+    private final Map<Connection, Integer> connectionIds; // Connection object -> its id
+    private final int[] connectionArcs; // The two arcs of connection id are 2 * id and 2 * id + 1 in this array
+    final int[] offsets; // First arc of each city, with an extra entry at the end
+    final int[] targets; // Neighbor city of each arc
+    final int[] arcConnections; // Id of the connection each arc belongs to
+    private volatile double[] weights; // Current length of each arc, replaced as a whole on every update
+    private final List<WeightListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Receives the changes of connection lengths, for example to repair cached routes.
+     */
+    public interface WeightListener {
+        /**
+         * Called once per update, after the new lengths have been published.
+         * @param connections The changed connections.
+         * @param oldWeights The previous length of each changed connection, Double.POSITIVE_INFINITY if it was closed.
+         * @param newWeights The new length of each changed connection, Double.POSITIVE_INFINITY if it is closed now.
+         */
+        void weightsChanged(List<Connection> connections, double[] oldWeights, double[] newWeights);
+    }
+
+    /**
+     * Builds the network from the loaded cities and connections.
+     * @param cities List of all cities.
+     * @param connections List of all connections between cities.
+     */
+    public RoadNetwork(List<City> cities, List<Connection> connections){
+        int n = cities.size();
+        this.cities = cities.toArray(new City[0]);
+        this.connections = connections.toArray(new Connection[0]);
+        indices = new HashMap<>(n * 2);
+        xs = new int[n];
+        ys = new int[n];
+        indexCities();
+
+        // Count the degree of each city, then turn the counts into starting offsets
+        offsets = new int[n + 1];
+        int[] ends1 = new int[connections.size()];
+        int[] ends2 = new int[connections.size()];
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            ends1[i] = indexOf(connection.city1);
+            ends2[i] = indexOf(connection.city2);
+            offsets[ends1[i] + 1]++;
+            offsets[ends2[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Fill the arcs of each city, both directions for every connection
+        targets = new int[offsets[n]];
+        arcConnections = new int[offsets[n]];
+        connectionArcs = new int[offsets[n]];
+        double[] initialWeights = new double[offsets[n]];
+        int[] next = new int[n];
+        System.arraycopy(offsets, 0, next, 0, n);
+        for (int i = 0; i < connections.size(); i++) {
+            double distance = connections.get(i).distance;
+            int arc = next[ends1[i]]++;
+            targets[arc] = ends2[i];
+            initialWeights[arc] = distance;
+            arcConnections[arc] = i;
+            connectionArcs[2 * i] = arc;
+            arc = next[ends2[i]]++;
+            targets[arc] = ends1[i];
+            initialWeights[arc] = distance;
+            arcConnections[arc] = i;
+            connectionArcs[2 * i + 1] = arc;
+        }
+        weights = initialWeights;
+        connectionIds = indexConnections();
+    }
+
+    /**
+     * Constructs the network from already compiled arrays, as stored in a binary graph file. A Connection is created
+     * for every pair of opposite arcs.
+     * @param cities The cities in index order.
+     * @param xs X coordinate of each city.
+     * @param ys Y coordinate of each city.
+     * @param offsets First arc of each city, with an extra entry at the end.
+     * @param targets Neighbor city of each arc.
+     * @param weights Length of each arc.
+     */
+    RoadNetwork(City[] cities, int[] xs, int[] ys, int[] offsets, int[] targets, double[] weights){
+        this.cities = cities;
+        this.xs = xs;
+        this.ys = ys;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        indices = new HashMap<>(cities.length * 2);
+        indexCities();
+
+        // Pair every arc with the opposite arc of the same length that is not taken yet
+        arcConnections = new int[targets.length];
+        connectionArcs = new int[targets.length];
+        connections = new Connection[targets.length / 2];
+        Arrays.fill(arcConnections, -1);
+        int id = 0;
+        for (int city = 0; city < cities.length; city++) {
+            for (int arc = offsets[city]; arc < offsets[city + 1]; arc++) {
+                if (arcConnections[arc] != -1){
+                    continue;
+                }
+                int neighbor = targets[arc];
+                arcConnections[arc] = id;
+                connectionArcs[2 * id] = arc;
+                for (int twin = offsets[neighbor]; twin < offsets[neighbor + 1]; twin++) {
+                    if (arcConnections[twin] == -1 && targets[twin] == city && weights[twin] == weights[arc]){
+                        arcConnections[twin] = id;
+                        connectionArcs[2 * id + 1] = twin;
+                        break;
+                    }
+                }
+                connections[id++] = new Connection(cities[city], cities[neighbor], weights[arc]);
+            }
+        }
+        connectionIds = indexConnections();
+    }
+
+    /**
+     * Fills the city to index map and the coordinate arrays from the city array.
+     */
+    private void indexCities(){
+        for (int i = 0; i < cities.length; i++) {
+            indices.put(cities[i], i);
+            xs[i] = cities[i].x;
+            ys[i] = cities[i].y;
+        }
+    }
+
+    /**
+     * @return A map from each connection to its id. Connections are compared by identity.
+     */
+    private Map<Connection, Integer> indexConnections(){
+        Map<Connection, Integer> ids = new IdentityHashMap<>(connections.length * 2);
+        for (int i = 0; i < connections.length; i++) {
+            ids.put(connections[i], i);
+        }
+        return ids;
+    }
+
+    /**
+     * @return The cities of the network in index order, as an unmodifiable list.
+     */
+    public List<City> getCities(){
+        return Collections.unmodifiableList(Arrays.asList(cities));
+    }
+
+    /**
+     * @return The connections of the network, as an unmodifiable list. These are the objects to pass to setWeight.
+     */
+    public List<Connection> getConnections(){
+        return Collections.unmodifiableList(Arrays.asList(connections));
+    }
+
+    /**
+     * @return The current length of every arc. The returned array is never modified, so a search that uses it from
+     * start to end sees a consistent snapshot.
+     */
+    double[] weights(){
+        return weights;
+    }
+
+    /**
+     * @return The original length of every arc, the distance of its connection without closures or congestion.
+     */
+    double[] baseWeights(){
+        double[] base = new double[targets.length];
+        for (int arc = 0; arc < base.length; arc++) {
+            base[arc] = connections[arcConnections[arc]].distance;
+        }
+        return base;
+    }
+
+    /**
+     * @param connection A connection of the network.
+     * @return Its current length, Double.POSITIVE_INFINITY if it is closed.
+     */
+    public double getWeight(Connection connection){
+        return weights[connectionArcs[2 * idOf(connection)]];
+    }
+
+    /**
+     * Changes the length of a connection.
+     * @param connection A connection of the network.
+     * @param weight The new length. It may not be shorter than the straight line between the two cities, since the
+     *               straight-line distance is used as the A* heuristic; Double.POSITIVE_INFINITY closes the road.
+     */
+    public void setWeight(Connection connection, double weight){
+        setWeights(Collections.singletonMap(connection, weight));
+    }
+
+    /**
+     * Changes the lengths of several connections with a single copy of the weights array, and then informs the
+     * listeners of every change.
+     * @param changes The new length of each changed connection.
+     */
+    public synchronized void setWeights(Map<Connection, Double> changes){
+        double[] updated = weights.clone();
+        List<Connection> changed = new ArrayList<>(changes.keySet());
+        double[] oldWeights = new double[changed.size()];
+        double[] newWeights = new double[changed.size()];
+        for (int i = 0; i < changed.size(); i++) {
+            int id = idOf(changed.get(i));
+            int arc1 = connectionArcs[2 * id];
+            int arc2 = connectionArcs[2 * id + 1];
+            double weight = changes.get(changed.get(i));
+            // The tolerance allows for the rounding of the stored lengths
+            if (Double.isNaN(weight) || weight < straightLine(arcSource(arc1), targets[arc1]) - 1e-9){
+                throw new IllegalArgumentException("A connection cannot be shorter than the straight line");
+            }
+            oldWeights[i] = updated[arc1];
+            newWeights[i] = weight;
+            updated[arc1] = weight;
+            updated[arc2] = weight;
+        }
+        weights = updated; // Publish all changes at once
+        for (WeightListener listener : listeners) {
+            listener.weightsChanged(changed, oldWeights, newWeights);
+        }
+    }
+
+    /**
+     * Multiplies the original length of a connection by a congestion factor.
+     * @param connection A connection of the network.
+     * @param factor The congestion factor, at least 1.
+     */
+    public void applyCongestion(Connection connection, double factor){
+        if (factor < 1){
+            throw new IllegalArgumentException("Congestion factor must be at least 1");
+        }
+        setWeight(connection, connection.distance * factor);
+    }
+
+    /**
+     * Closes a connection so no route uses it.
+     * @param connection A connection of the network.
+     */
+    public void closeConnection(Connection connection){
+        setWeight(connection, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Reopens a connection with its original length.
+     * @param connection A connection of the network.
+     */
+    public void reopenConnection(Connection connection){
+        setWeight(connection, connection.distance);
+    }
+
+    /**
+     * Registers a listener that is called after every update of connection lengths. The listeners run on the updating
+     * thread while further updates wait.
+     * @param listener The listener to add.
+     */
+    public void addWeightListener(WeightListener listener){
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener The listener to remove.
+     */
+    public void removeWeightListener(WeightListener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param connection A connection of the network.
+     * @return The id of the connection.
+     */
+    private int idOf(Connection connection){
+        Integer id = connectionIds.get(connection);
+        if (id == null){
+            throw new IllegalArgumentException("Connection is not part of the network");
+        }
+        return id;
+    }
+
+    /**
+     * @param connection A connection of the network.
+     * @return The two arcs of the connection, one in each direction.
+     */
+    int[] arcsOf(Connection connection){
+        int id = idOf(connection);
+        return new int[]{connectionArcs[2 * id], connectionArcs[2 * id + 1]};
+    }
+
+    /**
+     * @return The number of cities in the network.
+     */
+    public int size(){
+        return cities.length;
+    }
+
+    /**
+     * Finds the index of a city in the network.
+     * @param city The city to find.
+     * @return The index of the city, or -1 if it is not part of the network.
+     */
+    public int indexOf(City city){
+        Integer index = indices.get(city);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index Index of a city.
+     * @return The city with the given index.
+     */
+    public City cityAt(int index){
+        return cities[index];
+    }
+
+    /**
+     * Finds the city an arc leaves from with a binary search over the offsets.
+     * @param arc Index of the arc.
+     * @return Index of the city the arc starts at.
+     */
+    public int arcSource(int arc){
+        int low = 0;
+        int high = cities.length - 1;
+        // Find the last city whose first arc is not after the given arc
+        while (low < high){
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= arc){
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Calculates the straight-line distance between two cities. Since no connection is shorter than the straight
+     * line between its cities, this never overestimates the road distance and can be used as an A* heuristic.
+     * @param a Index of the first city.
+     * @param b Index of the second city.
+     * @return The Euclidean distance between the two cities.
+     */
+    public double straightLine(int a, int b){
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Calculates a fingerprint of the arcs and their current lengths, used to notice when a saved preprocessing
+     * result no longer belongs to the loaded network.
+     * @return A hash of the network structure.
+     */
+    public long checksum(){
+        double[] weights = this.weights;
+        long hash = cities.length;
+        for (int i = 0; i < targets.length; i++) {
+            hash = hash * 31 + targets[i];
+            hash = hash * 31 + Double.doubleToLongBits(weights[i]);
+        }
+        for (int offset : offsets) {
+            hash = hash * 31 + offset;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.List;
+
+/**
+ * The result of a shortest path query, filled in directly by the search that answered it.
+ */
+public class Route {
+    public final List<City> path; // Cities from start to end, null if no path exists
+    public final double[] hopDistances; // Length of the road used between path.get(i) and path.get(i + 1)
+    public final double totalDistance; // Length of the whole path, Double.MAX_VALUE if no path exists
+    public final int settledCount; // Number of cities the search settled before it could stop
+    public final long elapsedNanos; // Time the query took in nanoseconds
+    final double[] weights; // Connection lengths the route was computed on, null if not reported by the search
+
+    /**
+     * Constructs a route result.
+     * @param path Cities from start to end, or null if no path exists.
+     * @param hopDistances Length of each road on the path, one less than the number of cities.
+     * @param totalDistance Length of the whole path.
+     * @param settledCount Number of cities the search settled.
+     * @param elapsedNanos Time the query took in nanoseconds.
+     */
+    public Route(List<City> path, double[] hopDistances, double totalDistance, int settledCount, long elapsedNanos){
+        this(path, hopDistances, totalDistance, settledCount, elapsedNanos, null);
+    }
+
+    /**
+     * Constructs a route result that records the connection lengths it was computed on, so a RouteCache can tell
+     * whether it is still current.
+     * @param path Cities from start to end, or null if no path exists.
+     * @param hopDistances Length of each road on the path, one less than the number of cities.
+     * @param totalDistance Length of the whole path.
+     * @param settledCount Number of cities the search settled.
+     * @param elapsedNanos Time the query took in nanoseconds.
+     * @param weights The weights array of the network the search read.
+     */
+    Route(List<City> path, double[] hopDistances, double totalDistance, int settledCount, long elapsedNanos,
+          double[] weights){
+        this.path = path;
+        this.hopDistances = hopDistances;
+        this.totalDistance = totalDistance;
+        this.settledCount = settledCount;
+        this.elapsedNanos = elapsedNanos;
+        this.weights = weights;
+    }
+
+    /**
+     * Constructs the result of a query that found no path.
+     * @param settledCount Number of cities the search settled.
+     * @param elapsedNanos Time the query took in nanoseconds.
+     * @return A route without a path.
+     */
+    public static Route notFound(int settledCount, long elapsedNanos){
+        return notFound(settledCount, elapsedNanos, null);
+    }
+
+    /**
+     * Constructs the result of a query that found no path on the given connection lengths.
+     * @param settledCount Number of cities the search settled.
+     * @param elapsedNanos Time the query took in nanoseconds.
+     * @param weights The weights array of the network the search read.
+     * @return A route without a path.
+     */
+    static Route notFound(int settledCount, long elapsedNanos, double[] weights){
+        return new Route(null, new double[0], Double.MAX_VALUE, settledCount, elapsedNanos, weights);
+    }
+
+    /**
+     * @return true if a path between the two cities exists.
+     */
+    public boolean isFound(){
+        return path != null;
+    }
+}
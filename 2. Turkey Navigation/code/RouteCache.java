@@ -0,0 +1,235 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe cache of routes that evicts the least recently used route when it is full. Since every
+ * connection can be travelled in both directions, a route is stored once per unordered pair of cities: the route from
+ * A to B also answers the query from B to A by reversing it.
+ * The cache listens to the weight changes of the network and only removes the routes a change can affect: a longer or
+ * closed connection invalidates the routes that use it, and a shorter or reopened connection invalidates the routes
+ * that could become shorter through it, judged with the straight-line distances to its ends. The cache stays
+ * registered with the network until it is closed.
+ * A computed route is only cached if it was computed on the current connection lengths. The path finders of this
+ * package report the lengths they read; for any other path finder the lengths at the start of its search are assumed,
+ * so it must not answer from older ones.
+ * Routes returned by the cache are shared between callers: their path is unmodifiable and their hop distances must not
+ * be changed.
+ */
+public class RouteCache implements RoadNetwork.WeightListener, AutoCloseable {
+    private final RoadNetwork network; // Used to turn cities into indices for the keys
+    private final Map<Long, Route> routes; // Routes by pair key, in least to most recently used order
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructs an empty cache.
+     * @param network The network the cached routes are computed on.
+     * @param capacity The maximum number of routes kept.
+     */
+    public RouteCache(RoadNetwork network, int capacity){
+        this.network = network;
+        // An access-ordered LinkedHashMap keeps the least recently used entry first, which is the one to evict
+        this.routes = new LinkedHashMap<Long, Route>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Route> eldest){
+                return size() > capacity;
+            }
+        };
+        network.addWeightListener(this);
+    }
+
+    /**
+     * Returns the cached route between two cities, or computes it with the given path finder and caches it.
+     * Routes returned from the cache have a settled count of 0 and the lookup time as elapsed time.
+     * @param startCity The city from which to start.
+     * @param endCity The destination city.
+     * @param pathFinder The path finder used when the route is not cached.
+     * @return The route from start to end.
+     */
+    public Route findRoute(City startCity, City endCity, PathFinder pathFinder){
+        long startTime = System.nanoTime();
+        int start = network.indexOf(startCity);
+        int end = network.indexOf(endCity);
+        if (start == -1 || end == -1){
+            throw new IllegalArgumentException("City is not part of the network");
+        }
+        // The key is the same in both directions; the stored route always goes from the lower index to the higher one
+        long key = (long) Math.min(start, end) * network.size() + Math.max(start, end);
+        boolean reversed = start > end;
+
+        Route cached;
+        synchronized (routes){
+            cached = routes.get(key);
+        }
+        if (cached != null){
+            hits.incrementAndGet();
+            return copy(cached, reversed, System.nanoTime() - startTime);
+        }
+
+        misses.incrementAndGet();
+        // The search runs outside the lock so other threads are not blocked by it
+        double[] weights = network.weights();
+        Route route = reversed ? pathFinder.findRoute(endCity, startCity) : pathFinder.findRoute(startCity, endCity);
+        Route stored = route.isFound() ? new Route(Collections.unmodifiableList(route.path), route.hopDistances,
+                route.totalDistance, route.settledCount, route.elapsedNanos) : route;
+        // A path finder may answer from older lengths than the current ones, like a table that is still being
+        // repaired, so the lengths the route reports are preferred over the ones read before the search
+        if (route.weights != null){
+            weights = route.weights;
+        }
+        synchronized (routes){
+            // A route computed on outdated lengths is only returned; changes after this point invalidate it normally
+            if (network.weights() == weights){
+                routes.put(key, stored);
+            }
+        }
+        return reversed ? copy(stored, true, route.elapsedNanos) : stored;
+    }
+
+    /**
+     * Wraps a path finder so every query goes through this cache.
+     * @param pathFinder The path finder used when a route is not cached.
+     * @return A path finder answering from the cache when possible.
+     */
+    public PathFinder wrap(PathFinder pathFinder){
+        return (startCity, endCity) -> findRoute(startCity, endCity, pathFinder);
+    }
+
+    /**
+     * Makes a copy of a cached route for the caller, reversing it if the query was in the other direction.
+     * @param route The cached route.
+     * @param reverse Whether the route has to be reversed.
+     * @param elapsedNanos Time the lookup took.
+     * @return The route to return.
+     */
+    private static Route copy(Route route, boolean reverse, long elapsedNanos){
+        if (!route.isFound()){
+            return Route.notFound(0, elapsedNanos);
+        }
+        if (!reverse){
+            return new Route(route.path, route.hopDistances, route.totalDistance, 0, elapsedNanos);
+        }
+        List<City> path = new ArrayList<>(route.path);
+        Collections.reverse(path);
+        double[] hopDistances = new double[route.hopDistances.length];
+        for (int i = 0; i < hopDistances.length; i++) {
+            hopDistances[i] = route.hopDistances[hopDistances.length - 1 - i];
+        }
+        return new Route(Collections.unmodifiableList(path), hopDistances, route.totalDistance, 0, elapsedNanos);
+    }
+
+    /**
+     * Removes the cached routes the changed connections can affect.
+     */
+    @Override
+    public void weightsChanged(List<Connection> connections, double[] oldWeights, double[] newWeights){
+        int n = network.size();
+        synchronized (routes){
+            Iterator<Map.Entry<Long, Route>> iterator = routes.entrySet().iterator();
+            while (iterator.hasNext()){
+                Map.Entry<Long, Route> entry = iterator.next();
+                int start = (int) (entry.getKey() / n);
+                int end = (int) (entry.getKey() % n);
+                for (int i = 0; i < connections.size(); i++) {
+                    if (isAffected(entry.getValue(), start, end, connections.get(i), oldWeights[i], newWeights[i])){
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decides whether a cached route may be wrong after a connection changed. A longer connection only matters to
+     * the routes that use it, a shorter one only to the routes that are longer than the shortest conceivable route
+     * through it.
+     * @param route The cached route.
+     * @param start Index of the first city of the route.
+     * @param end Index of the last city of the route.
+     * @param connection The changed connection.
+     * @param oldWeight Its previous length.
+     * @param newWeight Its new length.
+     * @return Whether the route has to be removed.
+     */
+    private boolean isAffected(Route route, int start, int end, Connection connection, double oldWeight,
+                               double newWeight){
+        if (newWeight > oldWeight){
+            return route.isFound() && usesRoad(route, connection.city1, connection.city2);
+        }
+        if (newWeight == oldWeight){
+            return false;
+        }
+        // The straight line never overestimates, so this is a lower bound of any route using the connection
+        int u = network.indexOf(connection.city1);
+        int v = network.indexOf(connection.city2);
+        double bound = Math.min(network.straightLine(start, u) + newWeight + network.straightLine(v, end),
+                network.straightLine(start, v) + newWeight + network.straightLine(u, end));
+        return bound < route.totalDistance;
+    }
+
+    /**
+     * @param route A found route.
+     * @param a One end of a road.
+     * @param b The other end of the road.
+     * @return Whether the route travels directly between the two cities, in either direction.
+     */
+    private static boolean usesRoad(Route route, City a, City b){
+        List<City> path = route.path;
+        for (int i = 1; i < path.size(); i++) {
+            City previous = path.get(i - 1);
+            City current = path.get(i);
+            if ((previous == a && current == b) || (previous == b && current == a)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every cached route.
+     */
+    public void invalidate(){
+        synchronized (routes){
+            routes.clear();
+        }
+    }
+
+    /**
+     * Stops following the changes of the network, so the cache can be garbage collected, and removes every cached
+     * route, since they would no longer be repaired.
+     */
+    @Override
+    public void close(){
+        network.removeWeightListener(this);
+        invalidate();
+    }
+
+    /**
+     * @return The number of routes in the cache.
+     */
+    public int size(){
+        synchronized (routes){
+            return routes.size();
+        }
+    }
+
+    /**
+     * @return The number of queries answered from the cache.
+     */
+    public long getHits(){
+        return hits.get();
+    }
+
+    /**
+     * @return The number of queries that had to be computed.
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+}
@@ -0,0 +1,300 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Answers shortest path queries on a RoadNetwork. Depending on the SearchMode it runs Dijkstra's algorithm, A* with
+ * the straight-line distance as heuristic, or either of them from both ends at once. Every search uses an indexed
+ * binary heap and stops as soon as the shortest path is known. The arrays used by the search are allocated once and
+ * only the entries touched by a query are reset afterwards, so a Router can answer many queries cheaply.
+ * Each query reads the road lengths once when it starts, so a change of the network during a query does not affect it.
+ * A Router is not thread-safe; use one Router per thread.
+ */
+public class Router implements PathFinder {
+    private final RoadNetwork network; // The network the queries are answered on
+    private final SearchSpace forward; // Search from the start city
+    private final SearchSpace backward; // Search from the destination city, only used by bidirectional modes
+    private SearchMode mode = SearchMode.DIJKSTRA; // Mode used when none is given
+    private int settledCount; // Number of cities settled by the current query, both directions together
+    private double[] weights; // Road lengths seen by the current query
+
+    /**
+     * Constructs a router for the given network.
+     * @param network The network to route on.
+     */
+    public Router(RoadNetwork network){
+        this.network = network;
+        forward = new SearchSpace(network.size());
+        backward = new SearchSpace(network.size());
+    }
+
+    /**
+     * Sets the search mode used by findRoute when no mode is given.
+     * @param mode The default search mode.
+     */
+    public void setMode(SearchMode mode){
+        this.mode = mode;
+    }
+
+    /**
+     * @return The search mode used by findRoute when no mode is given.
+     */
+    public SearchMode getMode(){
+        return mode;
+    }
+
+    /**
+     * Calculates the shortest route between two cities with the default search mode.
+     */
+    @Override
+    public Route findRoute(City startCity, City endCity){
+        return findRoute(startCity, endCity, mode);
+    }
+
+    /**
+     * Calculates the shortest route between two cities.
+     * @param startCity The city from which to start.
+     * @param endCity The destination city.
+     * @param mode The search algorithm to use.
+     * @return The route found by the search, whose path is null if no path exists.
+     */
+    public Route findRoute(City startCity, City endCity, SearchMode mode){
+        long startTime = System.nanoTime();
+        int source = network.indexOf(startCity);
+        int target = network.indexOf(endCity);
+        if (source == -1 || target == -1){
+            throw new IllegalArgumentException("City is not part of the network");
+        }
+        settledCount = 0;
+        weights = network.weights();
+        try {
+            int meeting;
+            switch (mode){
+                case A_STAR:
+                    meeting = searchForward(source, target, true);
+                    break;
+                case BIDIRECTIONAL_DIJKSTRA:
+                    meeting = searchBidirectional(source, target, false);
+                    break;
+                case BIDIRECTIONAL_A_STAR:
+                    meeting = searchBidirectional(source, target, true);
+                    break;
+                default:
+                    meeting = searchForward(source, target, false);
+                    break;
+            }
+            if (meeting == -1){
+                return Route.notFound(settledCount, System.nanoTime() - startTime, weights);
+            }
+            return buildRoute(meeting, startTime);
+        } finally {
+            forward.reset();
+            backward.reset();
+            weights = null;
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm, or A* if a heuristic is used, from the source until the target is settled.
+     * @param source Index of the start city.
+     * @param target Index of the destination city.
+     * @param useHeuristic Whether the straight-line distance to the target is added to the queue keys.
+     * @return The target index if it was reached, -1 otherwise.
+     */
+    private int searchForward(int source, int target, boolean useHeuristic){
+        int[] offsets = network.offsets;
+        int[] targets = network.targets;
+        double[] weights = this.weights;
+
+        forward.visit(source, 0, -1);
+        forward.queue.insertOrDecrease(source, 0);
+        while (!forward.queue.isEmpty()){
+            int current = forward.queue.delMin();
+            forward.settled[current] = true;
+            settledCount++;
+            // Early exit, the destination's distance cannot get any smaller
+            if (current == target){
+                return target;
+            }
+            // Relax every road leaving the current city
+            for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                int neighbor = targets[arc];
+                if (forward.settled[neighbor]){
+                    continue;
+                }
+                double newDistance = forward.distances[current] + weights[arc];
+                if (newDistance < forward.distances[neighbor]){
+                    forward.visit(neighbor, newDistance, arc);
+                    double key = useHeuristic ? newDistance + network.straightLine(neighbor, target) : newDistance;
+                    forward.queue.insertOrDecrease(neighbor, key);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs a search from both ends at the same time, always expanding the side with the smaller queue key, and stops
+     * once the two queue keys together cannot beat the best path found through a city reached by both searches.
+     * With a heuristic, the average potential (h(v, target) - h(v, source)) / 2 is used for the forward search and its
+     * negation for the backward search, which keeps both sides consistent so the same stopping rule holds.
+     * @param source Index of the start city.
+     * @param target Index of the destination city.
+     * @param useHeuristic Whether the average straight-line potential is added to the queue keys.
+     * @return Index of the city where the shortest path joins both searches, -1 if there is no path.
+     */
+    private int searchBidirectional(int source, int target, boolean useHeuristic){
+        if (source == target){
+            forward.visit(source, 0, -1);
+            settledCount = 1;
+            return source;
+        }
+        int[] offsets = network.offsets;
+        int[] targets = network.targets;
+        double[] weights = this.weights;
+        double best = Double.MAX_VALUE; // Length of the shortest path found so far
+        int meeting = -1; // City where that path joins both searches
+
+        forward.visit(source, 0, -1);
+        forward.queue.insertOrDecrease(source, useHeuristic ? potential(source, source, target) : 0);
+        backward.visit(target, 0, -1);
+        backward.queue.insertOrDecrease(target, useHeuristic ? potential(target, target, source) : 0);
+        while (!forward.queue.isEmpty() && !backward.queue.isEmpty()){
+            if (forward.queue.minKey() + backward.queue.minKey() >= best){
+                break; // No unsettled city can lead to a shorter path
+            }
+            boolean isForward = forward.queue.minKey() <= backward.queue.minKey();
+            SearchSpace space = isForward ? forward : backward;
+            SearchSpace other = isForward ? backward : forward;
+            int from = isForward ? source : target;
+            int to = isForward ? target : source;
+
+            int current = space.queue.delMin();
+            space.settled[current] = true;
+            settledCount++;
+            for (int arc = offsets[current]; arc < offsets[current + 1]; arc++) {
+                int neighbor = targets[arc];
+                if (space.settled[neighbor]){
+                    continue;
+                }
+                double newDistance = space.distances[current] + weights[arc];
+                if (newDistance < space.distances[neighbor]){
+                    space.visit(neighbor, newDistance, arc);
+                    double key = useHeuristic ? newDistance + potential(neighbor, from, to) : newDistance;
+                    space.queue.insertOrDecrease(neighbor, key);
+                }
+                // If the other search already reached the neighbor, the two halves form a complete path
+                if (other.distances[neighbor] != Double.MAX_VALUE){
+                    double length = space.distances[neighbor] + other.distances[neighbor];
+                    if (length < best){
+                        best = length;
+                        meeting = neighbor;
+                    }
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * Calculates the average potential of a city for a search that runs from one city towards another.
+     * @param city Index of the city.
+     * @param from Index of the city the search starts from.
+     * @param to Index of the city the search is heading to.
+     * @return (h(city, to) - h(city, from)) / 2 where h is the straight-line distance.
+     */
+    private double potential(int city, int from, int to){
+        return (network.straightLine(city, to) - network.straightLine(city, from)) / 2;
+    }
+
+    /**
+     * Constructs the route through the meeting city: the forward half is followed back to the start city and the
+     * backward half, if any, is followed on to the destination. The length of every road is taken from the arc the
+     * search actually used, so no connection has to be looked up afterwards.
+     * @param meeting Index of the city where the forward and backward halves join.
+     * @param startTime Value of System.nanoTime() when the query started.
+     * @return The route from start to end.
+     */
+    private Route buildRoute(int meeting, long startTime){
+        // Walk backwards from the meeting city, then reverse the lists once instead of inserting at the front
+        List<City> path = new ArrayList<>();
+        List<Double> hops = new ArrayList<>();
+        path.add(network.cityAt(meeting));
+        for (int arc = forward.previousArc[meeting]; arc != -1; arc = forward.previousArc[network.arcSource(arc)]){
+            path.add(network.cityAt(network.arcSource(arc)));
+            hops.add(weights[arc]);
+        }
+        Collections.reverse(path);
+        Collections.reverse(hops);
+        // The backward search walked its arcs towards the meeting city, so their sources lead on to the destination
+        for (int arc = backward.previousArc[meeting]; arc != -1; arc = backward.previousArc[network.arcSource(arc)]){
+            path.add(network.cityAt(network.arcSource(arc)));
+            hops.add(weights[arc]);
+        }
+
+        double[] hopDistances = new double[hops.size()];
+        for (int i = 0; i < hopDistances.length; i++) {
+            hopDistances[i] = hops.get(i);
+        }
+        double totalDistance = forward.distances[meeting];
+        if (backward.distances[meeting] != Double.MAX_VALUE){
+            totalDistance += backward.distances[meeting]; // Only bidirectional searches have a backward half
+        }
+        return new Route(path, hopDistances, totalDistance, settledCount, System.nanoTime() - startTime, weights);
+    }
+
+    /**
+     * The state of one search direction. The arrays are indexed by city and keep their reset values between queries.
+     */
+    private static class SearchSpace {
+        final double[] distances; // Distance of each city to the city the search started from
+        final int[] previousArc; // Arc each city was reached with on the shortest path, -1 if none
+        final boolean[] settled; // Whether the final distance of each city is known
+        final IndexMinPQ queue; // Cities waiting to be settled
+        private final int[] touched; // Cities whose entries have to be reset after the query
+        private int touchedCount;
+
+        /**
+         * Constructs the search state for a network with the given number of cities.
+         * @param n Number of cities.
+         */
+        SearchSpace(int n){
+            distances = new double[n];
+            previousArc = new int[n];
+            settled = new boolean[n];
+            queue = new IndexMinPQ(n);
+            touched = new int[n];
+            Arrays.fill(distances, Double.MAX_VALUE);
+            Arrays.fill(previousArc, -1);
+        }
+
+        /**
+         * Records a new tentative distance for a city.
+         * @param city Index of the city.
+         * @param distance The new distance from the city the search started from.
+         * @param arc The arc the city is reached with, -1 for the city the search started from.
+         */
+        void visit(int city, double distance, int arc){
+            if (distances[city] == Double.MAX_VALUE){
+                touched[touchedCount++] = city;
+            }
+            distances[city] = distance;
+            previousArc[city] = arc;
+        }
+
+        /**
+         * Clears the entries touched by the last query so the arrays can be reused.
+         */
+        void reset(){
+            for (int i = 0; i < touchedCount; i++) {
+                int city = touched[i];
+                distances[city] = Double.MAX_VALUE;
+                previousArc[city] = -1;
+                settled[city] = false;
+            }
+            touchedCount = 0;
+            queue.clear();
+        }
+    }
+}
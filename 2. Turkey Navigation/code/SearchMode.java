@@ -0,0 +1,10 @@
+/**
+ * The search algorithms a Router can use to answer a query. All of them return the same shortest path; they differ
+ * only in how many cities they have to settle before they can stop.
+ */
+public enum SearchMode {
+    DIJKSTRA, // Plain Dijkstra from the start city
+    A_STAR, // Dijkstra guided by the straight-line distance to the destination
+    BIDIRECTIONAL_DIJKSTRA, // Dijkstra from both ends at the same time, stopping when the two searches meet
+    BIDIRECTIONAL_A_STAR // Bidirectional search guided by the average of both straight-line distances
+}
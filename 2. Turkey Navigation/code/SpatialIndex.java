@@ -0,0 +1,253 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A two-dimensional k-d tree over the map coordinates of the cities, used to snap arbitrary points to the closest
+ * cities and to find the cities around a point without scanning the whole list.
+ * The tree is stored implicitly in one array: the city in the middle of a range splits it, on x at even depths and on
+ * y at odd depths, and the two halves of the range are the subtrees. A search only visits a subtree if the splitting
+ * line is closer than the best distance found so far, so a nearest-city query takes about log n steps.
+ * The index is immutable once built and can be shared between threads.
+ */
+public class SpatialIndex {
+    private final City[] cities; // Cities in tree order
+    private final double[] xs, ys; // Coordinates of the cities in tree order
+
+    /**
+     * Builds the index over the given cities.
+     * @param cities List of all cities.
+     */
+    public SpatialIndex(List<City> cities){
+        this.cities = cities.toArray(new City[0]);
+        xs = new double[this.cities.length];
+        ys = new double[this.cities.length];
+        build(0, this.cities.length, 0);
+        for (int i = 0; i < this.cities.length; i++) {
+            xs[i] = this.cities[i].x;
+            ys[i] = this.cities[i].y;
+        }
+    }
+
+    /**
+     * Arranges a range of the city array as a subtree: the median city on the splitting axis is moved to the middle,
+     * and the halves before and after it are arranged the same way on the other axis.
+     * @param low First index of the range.
+     * @param high Index after the last one of the range.
+     * @param depth Depth of the subtree, even depths split on x and odd depths on y.
+     */
+    private void build(int low, int high, int depth){
+        while (high - low > 1){
+            int middle = (low + high) >>> 1;
+            select(low, high, middle, depth % 2 == 0);
+            build(low, middle, depth + 1);
+            // Continue with the upper half in the loop instead of another recursive call
+            low = middle + 1;
+            depth++;
+        }
+    }
+
+    /**
+     * Moves the city that belongs at position k in sorted order of the range there, with smaller or equal cities
+     * before it and larger or equal cities after it (quickselect).
+     * @param low First index of the range.
+     * @param high Index after the last one of the range.
+     * @param k The position to fill.
+     * @param onX Whether the cities are compared by x, otherwise by y.
+     */
+    private void select(int low, int high, int k, boolean onX){
+        int left = low;
+        int right = high - 1;
+        while (left < right){
+            double pivot = coordinate(cities[(left + right) >>> 1], onX);
+            int i = left;
+            int j = right;
+            while (i <= j){
+                while (coordinate(cities[i], onX) < pivot){
+                    i++;
+                }
+                while (coordinate(cities[j], onX) > pivot){
+                    j--;
+                }
+                if (i <= j){
+                    City swap = cities[i];
+                    cities[i] = cities[j];
+                    cities[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            // Keep only the side that contains position k
+            if (k <= j){
+                right = j;
+            } else if (k >= i){
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param city A city.
+     * @param onX Whether the x coordinate is wanted.
+     * @return The x or y coordinate of the city.
+     */
+    private static double coordinate(City city, boolean onX){
+        return onX ? city.x : city.y;
+    }
+
+    /**
+     * Finds the city closest to a point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return The closest city, or null if the index is empty.
+     */
+    public City nearest(double x, double y){
+        if (cities.length == 0){
+            return null;
+        }
+        double[] best = {Double.MAX_VALUE, -1}; // Squared distance and tree position of the best city so far
+        nearest(0, cities.length, 0, x, y, best);
+        return cities[(int) best[1]];
+    }
+
+    /**
+     * Searches a subtree for a city closer than the best one so far, visiting the half that contains the point first.
+     */
+    private void nearest(int low, int high, int depth, double x, double y, double[] best){
+        if (low >= high){
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        double dx = xs[middle] - x;
+        double dy = ys[middle] - y;
+        double distance = dx * dx + dy * dy;
+        if (distance < best[0]){
+            best[0] = distance;
+            best[1] = middle;
+        }
+        double offset = depth % 2 == 0 ? x - xs[middle] : y - ys[middle]; // Signed distance to the splitting line
+        if (offset < 0){
+            nearest(low, middle, depth + 1, x, y, best);
+            if (offset * offset < best[0]){
+                nearest(middle + 1, high, depth + 1, x, y, best);
+            }
+        } else {
+            nearest(middle + 1, high, depth + 1, x, y, best);
+            if (offset * offset < best[0]){
+                nearest(low, middle, depth + 1, x, y, best);
+            }
+        }
+    }
+
+    /**
+     * Finds the k cities closest to a point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param k Number of cities wanted.
+     * @return Up to k cities, closest first.
+     */
+    public List<City> nearest(double x, double y, int k){
+        // Max-heap of the tree positions of the k closest cities so far, the farthest of them on top
+        PriorityQueue<Integer> closest = new PriorityQueue<>(
+                Comparator.comparingDouble((Integer i) -> squaredDistance(i, x, y)).reversed());
+        if (k > 0){
+            nearest(0, cities.length, 0, x, y, k, closest);
+        }
+        List<City> result = new ArrayList<>(closest.size());
+        while (!closest.isEmpty()){
+            result.add(cities[closest.poll()]);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Searches a subtree for cities closer than the farthest of the k closest ones so far.
+     */
+    private void nearest(int low, int high, int depth, double x, double y, int k, PriorityQueue<Integer> closest){
+        if (low >= high){
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        closest.add(middle);
+        if (closest.size() > k){
+            closest.poll();
+        }
+        double offset = depth % 2 == 0 ? x - xs[middle] : y - ys[middle];
+        int nearLow = offset < 0 ? low : middle + 1;
+        int nearHigh = offset < 0 ? middle : high;
+        nearest(nearLow, nearHigh, depth + 1, x, y, k, closest);
+        if (closest.size() < k || offset * offset < squaredDistance(closest.peek(), x, y)){
+            nearest(offset < 0 ? middle + 1 : low, offset < 0 ? high : middle, depth + 1, x, y, k, closest);
+        }
+    }
+
+    /**
+     * Finds every city within a distance of a point.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param radius The largest distance from the point.
+     * @return The cities within the radius, in no particular order.
+     */
+    public List<City> withinRadius(double x, double y, double radius){
+        List<City> result = new ArrayList<>();
+        withinRadius(0, cities.length, 0, x, y, radius, result);
+        return result;
+    }
+
+    /**
+     * Collects the cities of a subtree within the radius, skipping the halves that lie entirely outside it.
+     */
+    private void withinRadius(int low, int high, int depth, double x, double y, double radius, List<City> result){
+        if (low >= high){
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        if (squaredDistance(middle, x, y) <= radius * radius){
+            result.add(cities[middle]);
+        }
+        double offset = depth % 2 == 0 ? x - xs[middle] : y - ys[middle];
+        if (offset - radius <= 0){
+            withinRadius(low, middle, depth + 1, x, y, radius, result);
+        }
+        if (offset + radius >= 0){
+            withinRadius(middle + 1, high, depth + 1, x, y, radius, result);
+        }
+    }
+
+    /**
+     * @param position Tree position of a city.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return The squared distance between the city and the point.
+     */
+    private double squaredDistance(int position, double x, double y){
+        double dx = xs[position] - x;
+        double dy = ys[position] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Snaps a point written as text to the closest city. The point is given as two numbers separated by a space,
+     * for example "1200 450", in map coordinates.
+     * @param text The text to read.
+     * @return The closest city, or null if the text is not a point or the index is empty.
+     */
+    public City snap(String text){
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length != 2){
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(parts[0]);
+            double y = Double.parseDouble(parts[1]);
+            return Double.isFinite(x) && Double.isFinite(y) ? nearest(x, y) : null;
+        } catch (NumberFormatException e){
+            return null; // Not a point, probably a misspelled city name
+        }
+    }
+}
@@ -0,0 +1,371 @@
+import java.util.function.Function;
+
+/**
+ * The parameters of an Ant Colony Optimization run. A configuration cannot be changed: every with method returns a
+ * copy with one parameter changed, so one configuration can be shared by solvers running at the same time
+ * The pheromone policy is shared as well, which is safe for the policies of this project since they keep no state of
+ * their own. The local search belongs to the locations, so the configuration keeps a function that creates it
+ * A run stops after the given number of iterations, or earlier when its time budget is used up, when the best route
+ * has not improved for the stagnation limit or when the pheromones have converged below the branching factor
+ */
+public final class AcoConfig {
+    private double alpha = 0.9; // Influence of pheromone trails on ant's route decision
+    private double beta = 2.3; // Influence of distance
+    private int iterations = 150; // Number of iterations
+    private int antsPerIteration = 100; // Number of ants in each iteration (of each colony)
+    private int candidateCount = 0; // Nearest points an ant considers, 0 for all points
+    private boolean parallel = false; // Whether the ants of an iteration build their routes at the same time
+    private int colonyCount = 1; // Number of colonies of the parallel mode
+    private int migrationInterval = 10; // Iterations between the exchanges of best tours between colonies
+    private PheromonePolicy policy = new AntSystem(); // How the ants lay down pheromones and how they evaporate
+    private Function<PointSet, LocalSearch> localSearch = null; // Creates the local search, null for none
+    private boolean improveEachAnt = true; // Whether every route is improved, otherwise only the iteration best
+    private boolean singlePrecision = false; // Whether the distance and pheromone matrices store floats
+    private long timeBudget = 0; // Milliseconds a run may take, 0 for no limit
+    private int stagnationLimit = 0; // Iterations without a shorter route after which a run stops, 0 for no limit
+    private double minBranchingFactor = 0; // Branching factor of the pheromones at which a run stops, 0 for never
+    private TourListener listener = null; // Receives every shorter route found, null for none
+
+    private AcoConfig(){
+    }
+
+    /**
+     * @return The parameters the project has always used: the Ant System with 150 iterations of 100 ants, without
+     * candidate lists or local search
+     */
+    public static AcoConfig defaults(){
+        return new AcoConfig();
+    }
+
+    /**
+     * @return A copy of this configuration
+     */
+    private AcoConfig copy(){
+        AcoConfig copy = new AcoConfig();
+        copy.alpha = alpha;
+        copy.beta = beta;
+        copy.iterations = iterations;
+        copy.antsPerIteration = antsPerIteration;
+        copy.candidateCount = candidateCount;
+        copy.parallel = parallel;
+        copy.colonyCount = colonyCount;
+        copy.migrationInterval = migrationInterval;
+        copy.policy = policy;
+        copy.localSearch = localSearch;
+        copy.improveEachAnt = improveEachAnt;
+        copy.singlePrecision = singlePrecision;
+        copy.timeBudget = timeBudget;
+        copy.stagnationLimit = stagnationLimit;
+        copy.minBranchingFactor = minBranchingFactor;
+        copy.listener = listener;
+        return copy;
+    }
+
+    /**
+     * @param value A parameter that must be at least 1
+     * @param name Name of the parameter
+     * @return The value
+     */
+    private static int positive(int value, String name){
+        if (value < 1){
+            throw new IllegalArgumentException(name + " must be at least 1, not " + value);
+        }
+        return value;
+    }
+
+    /**
+     * @param alpha Influence of pheromone trails on ant's route decision
+     * @return A copy with the new value
+     */
+    public AcoConfig withAlpha(double alpha){
+        AcoConfig copy = copy();
+        copy.alpha = alpha;
+        return copy;
+    }
+
+    /**
+     * @param beta Influence of distance on ant's route decision
+     * @return A copy with the new value
+     */
+    public AcoConfig withBeta(double beta){
+        AcoConfig copy = copy();
+        copy.beta = beta;
+        return copy;
+    }
+
+    /**
+     * @param iterations Number of iterations, at least 1
+     * @return A copy with the new value
+     */
+    public AcoConfig withIterations(int iterations){
+        AcoConfig copy = copy();
+        copy.iterations = positive(iterations, "iterations");
+        return copy;
+    }
+
+    /**
+     * @param antsPerIteration Number of ants in each iteration (of each colony), at least 1
+     * @return A copy with the new value
+     */
+    public AcoConfig withAntsPerIteration(int antsPerIteration){
+        AcoConfig copy = copy();
+        copy.antsPerIteration = positive(antsPerIteration, "antsPerIteration");
+        return copy;
+    }
+
+    /**
+     * @param candidateCount Number of nearest points each ant considers, 0 for all points; only the sequential mode
+     *                       uses candidate lists
+     * @return A copy with the new value
+     */
+    public AcoConfig withCandidateCount(int candidateCount){
+        if (candidateCount < 0){
+            throw new IllegalArgumentException("candidateCount must not be negative, not " + candidateCount);
+        }
+        AcoConfig copy = copy();
+        copy.candidateCount = candidateCount;
+        return copy;
+    }
+
+    /**
+     * @param parallel Whether the ants of an iteration build their routes at the same time on all cores
+     * @return A copy with the new value
+     */
+    public AcoConfig withParallel(boolean parallel){
+        AcoConfig copy = copy();
+        copy.parallel = parallel;
+        return copy;
+    }
+
+    /**
+     * @param colonyCount Number of colonies of the parallel mode, at least 1
+     * @return A copy with the new value
+     */
+    public AcoConfig withColonyCount(int colonyCount){
+        AcoConfig copy = copy();
+        copy.colonyCount = positive(colonyCount, "colonyCount");
+        return copy;
+    }
+
+    /**
+     * @param migrationInterval Iterations between the exchanges of best tours between colonies, at least 1
+     * @return A copy with the new value
+     */
+    public AcoConfig withMigrationInterval(int migrationInterval){
+        AcoConfig copy = copy();
+        copy.migrationInterval = positive(migrationInterval, "migrationInterval");
+        return copy;
+    }
+
+    /**
+     * @param policy How the ants lay down pheromones and how they evaporate
+     * @return A copy with the new value
+     */
+    public AcoConfig withPolicy(PheromonePolicy policy){
+        if (policy == null){
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        AcoConfig copy = copy();
+        copy.policy = policy;
+        return copy;
+    }
+
+    /**
+     * @param localSearch Creates the local search for the locations of a run, for example TwoOpt::new, or null for
+     *                    none
+     * @return A copy with the new value
+     */
+    public AcoConfig withLocalSearch(Function<PointSet, LocalSearch> localSearch){
+        AcoConfig copy = copy();
+        copy.localSearch = localSearch;
+        return copy;
+    }
+
+    /**
+     * @param improveEachAnt Whether the route of every ant is improved, otherwise only the best one of each iteration
+     * @return A copy with the new value
+     */
+    public AcoConfig withImproveEachAnt(boolean improveEachAnt){
+        AcoConfig copy = copy();
+        copy.improveEachAnt = improveEachAnt;
+        return copy;
+    }
+
+    /**
+     * @param singlePrecision Whether the distance and pheromone matrices store floats, which halves their memory
+     * @return A copy with the new value
+     */
+    public AcoConfig withSinglePrecision(boolean singlePrecision){
+        AcoConfig copy = copy();
+        copy.singlePrecision = singlePrecision;
+        return copy;
+    }
+
+    /**
+     * @param timeBudget Milliseconds a run may take before it stops with the best route so far, 0 for no limit. Both
+     *                   modes check it before every ant, so a run can stop partway through an iteration; the parallel
+     *                   mode then skips the ants that have not started and keeps the routes already built. The result
+     *                   of a seeded run then depends on the speed of the machine
+     * @return A copy with the new value
+     */
+    public AcoConfig withTimeBudget(long timeBudget){
+        if (timeBudget < 0){
+            throw new IllegalArgumentException("timeBudget must not be negative, not " + timeBudget);
+        }
+        AcoConfig copy = copy();
+        copy.timeBudget = timeBudget;
+        return copy;
+    }
+
+    /**
+     * @param stagnationLimit Iterations without a shorter route after which a run stops, 0 for no limit
+     * @return A copy with the new value
+     */
+    public AcoConfig withStagnationLimit(int stagnationLimit){
+        if (stagnationLimit < 0){
+            throw new IllegalArgumentException("stagnationLimit must not be negative, not " + stagnationLimit);
+        }
+        AcoConfig copy = copy();
+        copy.stagnationLimit = stagnationLimit;
+        return copy;
+    }
+
+    /**
+     * @param minBranchingFactor Lambda-branching factor of the pheromones (see PheromoneTrails.branchingFactor) below
+     *                           which a run stops, for example 2.1, 0 for never. It is measured once per iteration
+     *                           with one pass over the stored levels, n * n / 2 on the full trails and n * k on
+     *                           candidate lists, where it counts candidates and is at most k
+     * @return A copy with the new value
+     */
+    public AcoConfig withMinBranchingFactor(double minBranchingFactor){
+        if (minBranchingFactor < 0){
+            throw new IllegalArgumentException("minBranchingFactor must not be negative, not " + minBranchingFactor);
+        }
+        AcoConfig copy = copy();
+        copy.minBranchingFactor = minBranchingFactor;
+        return copy;
+    }
+
+    /**
+     * @param listener Receives every shorter route as soon as it is found, or null for none
+     * @return A copy with the new value
+     */
+    public AcoConfig withListener(TourListener listener){
+        AcoConfig copy = copy();
+        copy.listener = listener;
+        return copy;
+    }
+
+    /**
+     * @return Influence of pheromone trails on ant's route decision
+     */
+    public double alpha(){
+        return alpha;
+    }
+
+    /**
+     * @return Influence of distance on ant's route decision
+     */
+    public double beta(){
+        return beta;
+    }
+
+    /**
+     * @return Number of iterations
+     */
+    public int iterations(){
+        return iterations;
+    }
+
+    /**
+     * @return Number of ants in each iteration (of each colony)
+     */
+    public int antsPerIteration(){
+        return antsPerIteration;
+    }
+
+    /**
+     * @return Number of nearest points each ant considers, 0 for all points
+     */
+    public int candidateCount(){
+        return candidateCount;
+    }
+
+    /**
+     * @return Whether the ants of an iteration build their routes at the same time
+     */
+    public boolean parallel(){
+        return parallel;
+    }
+
+    /**
+     * @return Number of colonies of the parallel mode
+     */
+    public int colonyCount(){
+        return colonyCount;
+    }
+
+    /**
+     * @return Iterations between the exchanges of best tours between colonies
+     */
+    public int migrationInterval(){
+        return migrationInterval;
+    }
+
+    /**
+     * @return How the ants lay down pheromones and how they evaporate
+     */
+    public PheromonePolicy policy(){
+        return policy;
+    }
+
+    /**
+     * @param locations The locations of a run
+     * @return A new local search for the locations, or null for none
+     */
+    public LocalSearch localSearch(PointSet locations){
+        return localSearch == null ? null : localSearch.apply(locations);
+    }
+
+    /**
+     * @return Whether the route of every ant is improved, otherwise only the best one of each iteration
+     */
+    public boolean improveEachAnt(){
+        return improveEachAnt;
+    }
+
+    /**
+     * @return Whether the distance and pheromone matrices store floats
+     */
+    public boolean singlePrecision(){
+        return singlePrecision;
+    }
+
+    /**
+     * @return Milliseconds a run may take, 0 for no limit
+     */
+    public long timeBudget(){
+        return timeBudget;
+    }
+
+    /**
+     * @return Iterations without a shorter route after which a run stops, 0 for no limit
+     */
+    public int stagnationLimit(){
+        return stagnationLimit;
+    }
+
+    /**
+     * @return Branching factor of the pheromones below which a run stops, 0 for never
+     */
+    public double minBranchingFactor(){
+        return minBranchingFactor;
+    }
+
+    /**
+     * @return Receives every shorter route found, or null for none
+     */
+    public TourListener listener(){
+        return listener;
+    }
+}
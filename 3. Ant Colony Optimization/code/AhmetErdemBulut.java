@@ -1,7 +1,7 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.io.IOException;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.Function;
 
 /**
  * The main class for the Migros Delivery using Ant Colony Optimization assignment.
@@ -15,27 +15,42 @@ public class AhmetErdemBulut {
      * @param args Command line arguments
      */
     public static void main(String[] args) {
-        ArrayList<ArrayList<Double>> locations = new ArrayList<>(); // List to store locations
+        PointSet locations; // Coordinates of all locations
         // Reading location data from file
         try {
-            File file = new File("input01.txt"); // File containing location data
-            Scanner scanner = new Scanner(file); // Scanner to read the file
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] parts = line.split(",");
-                ArrayList<Double> coordinates = new ArrayList<>(); // List to keep the coordinates
-                coordinates.add(Double.parseDouble(parts[0])); // Parse and add x coordinate
-                coordinates.add(Double.parseDouble(parts[1])); // Parse and add y coordinate
-                locations.add(coordinates); // Add the coordinate pair to the list of locations
-            }
-            scanner.close();
-        } catch (FileNotFoundException e) {
+            locations = PointSet.read("input01.txt"); // File containing location data
+        } catch (IOException e) {
             System.out.println("An error occurred while reading the file.");
             e.printStackTrace();
             return;
         }
-        int chosenMethod = 1; // Method selector: 1 for brute-force, 2 for ACO
+        int chosenMethod = 1; // Method selector: 1 for brute-force, 2 for ACO, 3 for parallel ACO,
+                              // 4 for branch and bound, 5 for Held-Karp
         int displayMethod = 1; // Display selector for ACO: 1 for pheromone map, 2 for shortest path
+        int colonyCount = 4; // Number of colonies of the parallel ACO
+        long seed = 2024; // Seed of the parallel ACO, the same seed gives the same route
+        int candidateCount = 0; // Nearest points an ant considers in ACO, 0 for all points (about 10-20 for thousands)
+        int localSearchMethod = 0; // Local search for ACO: 0 for none, 1 for 2-opt, 2 for 2-opt and Or-opt
+        boolean improveEachAnt = true; // Improve the route of every ant, otherwise only the best one of each iteration
+        int policyMethod = 1; // Pheromone policy for ACO: 1 for Ant System, 2 for Max-Min Ant System, 3 for ACS
+        boolean singlePrecision = false; // Keep the distances and pheromones of ACO as floats, halving their memory
+        long timeBudget = 0; // Milliseconds ACO may run before it stops with the best route so far, 0 for no limit
+        int stagnationLimit = 0; // Iterations without a shorter route after which ACO stops, 0 for no limit
+        double minBranchingFactor = 0; // Branching factor of the pheromones at which ACO stops (e.g. 2.1), 0 for never
+        boolean printImprovements = false; // Print every shorter route ACO finds while it runs
+        AcoConfig config = AcoConfig.defaults() // Parameters of ACO
+                .withCandidateCount(candidateCount)
+                .withPolicy(createPolicy(policyMethod))
+                .withLocalSearch(createLocalSearch(localSearchMethod))
+                .withImproveEachAnt(improveEachAnt)
+                .withSinglePrecision(singlePrecision)
+                .withTimeBudget(timeBudget)
+                .withStagnationLimit(stagnationLimit)
+                .withMinBranchingFactor(minBranchingFactor);
+        if (printImprovements) {
+            config = config.withListener((tour, iteration, seconds) -> System.out.printf(
+                    "Shortest distance at %dth iteration is: %.5f (%.2f s)%n", iteration + 1, tour.length(), seconds));
+        }
 
         // Switch to select and execute the method based on the chosenMethod
         switch (chosenMethod){
@@ -44,29 +59,70 @@ public class AhmetErdemBulut {
                 break;
             case 2:
                 if (displayMethod == 1) {
-                    antColonyOptimization(locations, 1); // Use ACO with pheromone map
+                    // Use ACO with pheromone map
+                    antColonyOptimization(locations, 1, config);
                 } else if (displayMethod == 2) {
-                    antColonyOptimization(locations, 2); // Use ACO with shortest path
+                    // Use ACO with shortest path
+                    antColonyOptimization(locations, 2, config);
                 }
                 break;
+            case 3:
+                AntColonyOptimization.optimize(locations, displayMethod,
+                        config.withParallel(true).withColonyCount(colonyCount), new SplittableRandom(seed));
+                break;
+            case 4:
+                BranchAndBound.findRoute(locations);
+                break;
+            case 5:
+                HeldKarp.findRoute(locations);
+                break;
         }
     }
 
     /**
      * Calls the brute-force method
-     * @param locations A list of locations with coordinates
+     * @param locations All locations with coordinates
      */
-    private static void bruteForce(ArrayList<ArrayList<Double>> locations){
+    private static void bruteForce(PointSet locations){
         BruteForce.findRoute(locations);
     }
 
     /**
      * Calls the Ant Colony Optimization method
-     * @param locations A list of locations with coordinates
+     * @param locations All locations with coordinates
      * @param displayMethod The display method (1 for pheromone map, 2 for shortest path)
+     * @param config Parameters of ACO
+     */
+    private static void antColonyOptimization(PointSet locations, int displayMethod, AcoConfig config) {
+        AntColonyOptimization.optimize(locations, displayMethod, config, new Random());
+    }
+
+    /**
+     * Creates the pheromone policy for ACO
+     * @param policyMethod The policy (1 for Ant System, 2 for Max-Min Ant System, 3 for Ant Colony System)
+     * @return The pheromone policy
      */
-    private static void antColonyOptimization(ArrayList<ArrayList<Double>> locations, int displayMethod) {
-        AntColonyOptimization.optimize(locations, displayMethod);
+    private static PheromonePolicy createPolicy(int policyMethod) {
+        if (policyMethod == 2) {
+            return new MaxMinAntSystem();
+        } else if (policyMethod == 3) {
+            return new AntColonySystem();
+        }
+        return new AntSystem();
+    }
+
+    /**
+     * Creates the local search for ACO
+     * @param localSearchMethod The local search (0 for none, 1 for 2-opt, 2 for 2-opt and Or-opt)
+     * @return Function that creates the local search for the locations of a run, or null for none
+     */
+    private static Function<PointSet, LocalSearch> createLocalSearch(int localSearchMethod) {
+        if (localSearchMethod == 1) {
+            return TwoOpt::new;
+        } else if (localSearchMethod == 2) {
+            return points -> LocalSearch.sequence(new TwoOpt(points), new OrOpt(points));
+        }
+        return null;
     }
 
 }
@@ -1,66 +1,367 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
 /**
  * Implements the Ant Colony Optimization algorithm to solve the problem by simulating the behavior of ants searching
  * for the shortest route between points
+ * A solver is an instance with its own configuration, random generator and matrices, so many solves can run at the
+ * same time from a thread pool, and a seeded generator makes a solve repeatable. The only state solves share are the
+ * construction buffers of each thread, which every route first grows to the size it needs and leaves cleared, so
+ * dense, candidate list and parallel solves can follow each other on the same pool thread. The static optimize
+ * methods solve, draw and print the result for the main program
+ * A run can stop before its last iteration: when a time budget is used up, when the best route has not improved for
+ * a number of iterations, or when the pheromones have converged on one route, measured by their lambda-branching
+ * factor. A listener receives every shorter route as soon as it is found, so the best route so far is always at hand
+ * The parallel mode builds the tours of an iteration on all cores and runs several colonies (islands) side by side
+ * that exchange their best tours from time to time. Every ant gets its own random generator derived from the run's
+ * generator, and the pheromones are only updated after all ants of an iteration have finished, so a run gives the
+ * same result for the same seed no matter how the threads are scheduled
+ * Tours are built on int arrays and reused buffers without allocating. The distance part of the choice rule, eta^beta,
+ * is computed once, and the product tau^alpha * eta^beta of every path is cached and only recomputed when the
+ * pheromones change, so choosing the next point only adds up cached weights instead of calling Math.pow
+ * The distances, eta^beta and the pheromone levels are symmetric, so each is kept once per pair in a packed triangular
+ * matrix, optionally in float precision. Only the cached weights keep both triangles, since the ants copy their rows at
+ * every step. Evaporation scales the levels and the weights with one contiguous loop each
+ * For large instances the ants can be limited to candidate lists, the k nearest points of each point. Pheromones are
+ * then only kept on the paths to the candidates, so memory and the cost of a step grow with k instead of n, and an
+ * ant whose candidates are all visited continues with the closest unvisited point
+ * A local search can improve the routes, either the route of every ant before it deposits its pheromones, or only the
+ * best route of each iteration, which then deposits its pheromones once more after the improvement
+ * How the pheromones are laid down and evaporate is decided by a PheromonePolicy: the original Ant System, the Max-Min
+ * Ant System or the Ant Colony System
  */
 public class AntColonyOptimization {
-    private static final double ALPHA = 0.9; // Influence of pheromone trails on ant's route decision
-    private static final double BETA = 2.3; // Influence of distance
-    private static final double DEGRADATION = 0.5; // Rate at which pheromones evaporate
-    private static final double Q = 0.0001; // Constant used to calculate pheromone deposition
-    private static final double INIT_PHEROMONE = 0.1; // Initial pheromone level on paths
-    private static final double NUMBER_OF_ITERATIONS = 150;
-    private static final double ANT_PER_ITERATION = 100;
-//    private static final double NUMBER_OF_ITERATIONS = 100; // default values
-//    private static final double ANT_PER_ITERATION = 50;
-    private static Random random = new Random(); // Random generator
-    private static double[][] pheromones; // Matrix to store pheromone levels
-    private static double[][] distances; // Matrix to store distances between cities
+    // Tour construction buffers, one set per thread so the ants of a thread reuse them, whichever solver they belong
+    // to. VISITED and PROBABILITIES are grown together, REMAINING only by the candidate lists, so it is checked apart
+    private static final ThreadLocal<boolean[]> VISITED = ThreadLocal.withInitial(() -> new boolean[0]);
+    private static final ThreadLocal<double[]> PROBABILITIES = ThreadLocal.withInitial(() -> new double[0]);
+    private static final ThreadLocal<int[]> REMAINING = ThreadLocal.withInitial(() -> new int[0]);
+    private static final double BRANCHING_LAMBDA = 0.05; // Lambda of the branching factor that detects convergence
+    private static final int BRANCHING_PATIENCE = 10; // Iterations without a shorter route before it may stop a run
+
+    private final PointSet locations; // All locations with coordinates
+    private final AcoConfig config; // Parameters of the run
+    private final RandomGenerator random; // Random generator, the parallel mode derives the ants' generators from it
+    private final double alpha; // Influence of pheromone trails on ant's route decision
+    private final double beta; // Influence of distance
+    private final double[] xs, ys; // Coordinates of the points
+    private PheromoneTrails trails; // Pheromone levels, a DenseTrails or the CandidateLists of a large instance
+    private SymmetricMatrix distances; // Matrix to store distances between cities
+    private SymmetricMatrix heuristics; // eta^beta of every path, 1 / distance^beta
+    private long startTime; // System.nanoTime() when the current run started
+    private int iterationsRun; // Number of iterations of the last run, the last one possibly cut short
+
+    /**
+     * Prepares a solver for the given locations. All state of a run belongs to its solver, so solvers with their own
+     * random generators can run at the same time, for example as tasks of a thread pool
+     * @param locations All locations with coordinates
+     * @param config Parameters of the run
+     * @param random Random generator of the run, a seeded generator gives the same result every time
+     */
+    public AntColonyOptimization(PointSet locations, AcoConfig config, RandomGenerator random){
+        this.locations = locations;
+        this.config = config;
+        this.random = random;
+        alpha = config.alpha();
+        beta = config.beta();
+        xs = locations.xs();
+        ys = locations.ys();
+    }
 
     /**
      * Optimizes the routing to find the shortest path between locations using ACO
-     * @param locations List of all locations with coordinates
+     * @param locations All locations with coordinates
+     * @param displayMethod Determines the type of visualization for the result (pheromone map or shortest path)
+     */
+    public static void optimize(PointSet locations, int displayMethod){
+        optimize(locations, displayMethod, AcoConfig.defaults(), new Random());
+    }
+
+    /**
+     * Optimizes the routing to find the shortest path between locations using ACO, where each ant only considers the
+     * nearest points of its current point
+     * @param locations All locations with coordinates
+     * @param displayMethod Determines the type of visualization for the result (pheromone map or shortest path)
+     * @param candidateCount Number of nearest points in each candidate list, 0 to consider all points
+     */
+    public static void optimize(PointSet locations, int displayMethod, int candidateCount){
+        optimize(locations, displayMethod, AcoConfig.defaults().withCandidateCount(candidateCount), new Random());
+    }
+
+    /**
+     * Optimizes the routing with several colonies in parallel, see solveParallel
+     * @param locations All locations with coordinates
      * @param displayMethod Determines the type of visualization for the result (pheromone map or shortest path)
+     * @param colonyCount Number of colonies
+     * @param seed Seed of the random generators, the same seed gives the same result
      */
-    public static void optimize(ArrayList<ArrayList<Double>> locations, int displayMethod){
+    public static void optimizeParallel(PointSet locations, int displayMethod, int colonyCount, long seed){
+        AcoConfig config = AcoConfig.defaults().withParallel(true).withColonyCount(colonyCount);
+        optimize(locations, displayMethod, config, new SplittableRandom(seed));
+    }
+
+    /**
+     * Optimizes the routing with the given parameters, then shows and prints the best route
+     * @param locations All locations with coordinates
+     * @param displayMethod Determines the type of visualization for the result (pheromone map or shortest path)
+     * @param config Parameters of the run
+     * @param random Random generator of the run
+     */
+    public static void optimize(PointSet locations, int displayMethod, AcoConfig config, RandomGenerator random){
         double startTime = System.currentTimeMillis(); // Starting time for timing the method execution
 
-        ArrayList<Integer> bestRoute = new ArrayList<>(); // List to store the best route found
+        AntColonyOptimization solver = new AntColonyOptimization(locations, config, random);
+        Tour best = solver.solve();
+        ArrayList<Integer> bestRoute = best.toList(); // List to store the best route found
+        // Display results based on the specified method
+        if (displayMethod == 1) {
+            solver.drawPheromoneMap();
+        } else if (displayMethod == 2) {
+            drawShortestPath(locations, bestRoute);
+        }
+
+        double endTime = System.currentTimeMillis(); // Ending time
+        double duration = (endTime - startTime) / 1000; // Duration in seconds
+        if (config.parallel()){
+            System.out.printf("Method: Parallel Ant Colony Optimization (%d colonies, %d threads)%n",
+                    config.colonyCount(), Runtime.getRuntime().availableProcessors());
+        } else {
+            System.out.println("Method: Ant Colony Optimization");
+        }
+        if (solver.iterationsRun() < config.iterations()){
+            System.out.printf("Stopped after %d of %d iterations%n", solver.iterationsRun(), config.iterations());
+        }
+        printResult(bestRoute, best.length(), duration);
+    }
+
+    /**
+     * Runs the optimization until the number of iterations of the configuration or one of its stopping conditions is
+     * reached. The listener of the configuration is told about every shorter route on the way
+     * @return The best route found
+     */
+    public Tour solve(){
+        startTime = System.nanoTime();
+        iterationsRun = 0;
+        return config.parallel() ? solveParallel() : solveSequential();
+    }
+
+    /**
+     * @return Number of iterations of the last run, the last one possibly cut short by the time budget
+     */
+    public int iterationsRun(){
+        return iterationsRun;
+    }
+
+    /**
+     * @return Whether the time budget of the run is used up
+     */
+    private boolean timeIsUp(){
+        return config.timeBudget() > 0 && System.nanoTime() - startTime >= config.timeBudget() * 1_000_000;
+    }
+
+    /**
+     * Decides after an iteration whether the run stops early: when the time budget is used up, when the best route has
+     * not improved for the stagnation limit, or when the pheromones of all trails have converged
+     * @param iteration Index of the iteration that just ended
+     * @param lastImprovement Index of the last iteration that found a shorter route
+     * @param trails Pheromone trails of the run, one per colony in the parallel mode
+     * @return Whether the run stops
+     */
+    private boolean converged(int iteration, int lastImprovement, PheromoneTrails... trails){
+        if (timeIsUp()){
+            return true;
+        }
+        if (config.stagnationLimit() > 0 && iteration - lastImprovement >= config.stagnationLimit()){
+            return true;
+        }
+        if (config.minBranchingFactor() > 0 && iteration - lastImprovement >= BRANCHING_PATIENCE){
+            for (PheromoneTrails colonyTrails : trails) {
+                if (colonyTrails.branchingFactor(BRANCHING_LAMBDA) >= config.minBranchingFactor()){
+                    return false; // One colony still explores
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tells the listener of the configuration, if there is one, about a shorter route
+     * @param tour The new best route
+     * @param length The length of the route
+     * @param iteration Index of the iteration it was found in
+     */
+    private void improved(int[] tour, double length, int iteration){
+        if (config.listener() != null){
+            config.listener().improved(new Tour(tour, length), iteration, (System.nanoTime() - startTime) / 1e9);
+        }
+    }
+
+    /**
+     * Runs the ants one after the other, each one laying down its pheromones before the next one starts
+     * @return The best route found
+     */
+    private Tour solveSequential(){
+        PheromonePolicy policy = config.policy();
+        LocalSearch localSearch = config.localSearch(locations);
+        boolean improveEachAnt = config.improveEachAnt();
+        int[] bestTour = new int[0]; // The best route found
         double bestDistance = Double.MAX_VALUE; // Variable to store the shortest distance found
-//        double currentBest = Double.MAX_VALUE; // This is defined to make finding when it finds a new shortest path easier
-        initializeRoads(locations); // Initialize distances and pheromones
+        prepare();
+        int[] tour = new int[locations.size() + 1]; // Route buffer reused by every ant
+        int[] iterationBest = new int[tour.length]; // Best route of the current iteration
+        int lastImprovement = 0; // Last iteration that found a shorter route
 
         // Main loop to perform the optimization across a specified number of iterations
-        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++){
-            for (int j = 0; j < ANT_PER_ITERATION; j++){
-                ArrayList<Integer> route = createRoute(locations); // Create a route for one ant
-                route = reorder(route); // Reorder the route starting from the first city
-                double routeLength = calculateRouteDistance(route); // Calculate the total length of the route
+        for (int i = 0; i < config.iterations(); i++){
+            iterationsRun = i + 1;
+            double iterationBestLength = Double.MAX_VALUE;
+            for (int j = 0; j < config.antsPerIteration(); j++){
+                if (j > 0 && timeIsUp()){
+                    return new Tour(bestTour, bestDistance); // Every iteration has at least one ant
+                }
+                // Create a route for one ant, starting from point 0
+                double routeLength = createRoute(tour, random, policy.exploitation());
+                if (localSearch != null && improveEachAnt){
+                    routeLength = localSearch.improve(tour, routeLength);
+                }
                 // Check if the new route is the best one found so far
                 if (routeLength < bestDistance){
-                    bestRoute = route;
+                    bestTour = tour.clone();
                     bestDistance = routeLength;
+                    lastImprovement = i;
+                    improved(bestTour, bestDistance, i);
                 }
-                updatePheromones(route, routeLength); // Update pheromones based on the route taken
+                if (routeLength < iterationBestLength){
+                    System.arraycopy(tour, 0, iterationBest, 0, tour.length);
+                    iterationBestLength = routeLength;
+                }
+                policy.antFinished(trails, tour, routeLength); // Update pheromones based on the route taken
+            }
+            if (localSearch != null && !improveEachAnt){
+                // The improved best route of the iteration deposits its pheromones once more
+                iterationBestLength = localSearch.improve(iterationBest, iterationBestLength);
+                if (iterationBestLength < bestDistance){
+                    bestTour = iterationBest.clone();
+                    bestDistance = iterationBestLength;
+                    lastImprovement = i;
+                    improved(bestTour, bestDistance, i);
+                }
+                policy.antFinished(trails, iterationBest, iterationBestLength);
+            }
+            // Evaporate pheromones to simulate natural degradation
+            policy.iterationFinished(trails, i, iterationBest, iterationBestLength, bestTour, bestDistance);
+            if (converged(i, lastImprovement, trails)){
+                break;
             }
-//            if (bestDistance < currentBest){ // This part is to use at finding when it finds a new shortest path
-//                currentBest = bestDistance;
-//                System.out.println("Shortest distance at " + (i + 1) + "th iteration is: " + currentBest);
-//            }
-            evaporatePheromones(); // Evaporate pheromones to simulate natural degradation
         }
-        // Display results based on the specified method
-        if (displayMethod == 1) {
-            drawPheromoneMap(locations);
-        } else if (displayMethod == 2) {
-            drawShortestPath(locations, bestRoute);
+        return new Tour(bestTour, bestDistance);
+    }
+
+    /**
+     * Runs several colonies in parallel. Within an iteration the ants of a colony build their tours concurrently, each
+     * with its own random generator and buffers, and the deposits of all ants are added afterwards in ant order. Every
+     * few iterations (the migration interval) each colony also deposits the best tour of its neighbor in a ring, so
+     * good tours spread between the islands while they keep exploring on their own. The generators of the ants are
+     * derived from one number drawn from the random generator of the run, so the result does not depend on how the
+     * threads are scheduled. The stopping conditions and the listener are checked after every iteration, and once the
+     * time budget is used up the ants that have not started yet are skipped
+     * @return The best route found
+     */
+    private Tour solveParallel(){
+        PheromonePolicy policy = config.policy();
+        LocalSearch localSearch = config.localSearch(locations);
+        boolean improveEachAnt = config.improveEachAnt();
+        int colonyCount = config.colonyCount();
+        initializeRoads(); // Initialize distances, the pheromones belong to the colonies
+        int n = locations.size();
+        int ants = config.antsPerIteration();
+        int iterations = config.iterations();
+        long seed = random.nextLong();
+
+        double greedyLength = greedyLength();
+        Colony[] colonies = new Colony[colonyCount];
+        PheromoneTrails[] colonyTrails = new PheromoneTrails[colonyCount];
+        for (int c = 0; c < colonyCount; c++) {
+            colonies[c] = new Colony(n, ants);
+            policy.initialize(colonies[c].trails, greedyLength);
+            colonyTrails[c] = colonies[c].trails;
+        }
+        Colony best = colonies[0]; // The colony with the best route so far
+        int lastImprovement = 0; // Last iteration that found a shorter route
+        for (int i = 0; i < iterations; i++){
+            final int iteration = i;
+            iterationsRun = i + 1;
+            // Every ant of every colony is an independent task
+            IntStream.range(0, colonyCount * ants).parallel().forEach(task -> {
+                int c = task / ants;
+                int ant = task % ants;
+                if (ant > 0 && timeIsUp()){
+                    colonies[c].lengths[ant] = Double.MAX_VALUE; // Skipped, the run ends with this iteration
+                    return;
+                }
+                SplittableRandom antRandom = new SplittableRandom(
+                        seed + 0x9E3779B97F4A7C15L * (((long) c * iterations + iteration) * ants + ant));
+                Colony colony = colonies[c];
+                colony.lengths[ant] = createRoute(colony.trails.weights, colony.tours[ant], antRandom,
+                        policy.exploitation());
+                if (localSearch != null && improveEachAnt){
+                    colony.lengths[ant] = localSearch.improve(colony.tours[ant], colony.lengths[ant]);
+                }
+            });
+            boolean timeIsUp = timeIsUp();
+            if (timeIsUp){
+                // Only the routes of the ants that were built before the time ran out are kept
+                for (Colony colony : colonies) {
+                    colony.keepBest();
+                }
+            } else {
+                // The colonies are independent here, so their iteration-best routes are improved in parallel as well
+                Arrays.stream(colonies).parallel().forEach(
+                        colony -> colony.finishIteration(policy, iteration, improveEachAnt ? null : localSearch));
+            }
+            // Exchange the best tours in a ring, using the tours from before the exchange
+            if (!timeIsUp && colonyCount > 1 && (i + 1) % config.migrationInterval() == 0){
+                int[][] migrants = new int[colonyCount][];
+                for (int c = 0; c < colonyCount; c++) {
+                    migrants[c] = colonies[c].bestTour.clone();
+                }
+                for (int c = 0; c < colonyCount; c++) {
+                    int[] migrant = migrants[(c + colonyCount - 1) % colonyCount];
+                    colonies[c].receive(migrant, tourLength(migrant), policy);
+                }
+            }
+
+            // The best colony provides the result and its pheromones are shown on the map
+            double previousBest = i == 0 ? Double.MAX_VALUE : best.bestLength;
+            for (Colony colony : colonies) {
+                if (colony.bestLength < best.bestLength){
+                    best = colony;
+                }
+            }
+            if (best.bestLength < previousBest){
+                lastImprovement = i;
+                improved(best.bestTour, best.bestLength, i);
+            }
+            if (timeIsUp || converged(i, lastImprovement, colonyTrails)){
+                break;
+            }
         }
+        trails = best.trails;
+        return new Tour(best.bestTour, best.bestLength);
+    }
 
-        double endTime = System.currentTimeMillis(); // Ending time
-        double duration = (endTime - startTime) / 1000; // Duration in seconds
-        System.out.println("Method: Ant Colony Optimization");
+    /**
+     * Prints the distance and the points of the best route, and the time the method took
+     * @param bestRoute The best route, starting and ending at the point with index 0
+     * @param bestDistance The length of the best route
+     * @param duration Duration of the method in seconds
+     */
+    static void printResult(ArrayList<Integer> bestRoute, double bestDistance, double duration){
         System.out.printf("Shortest Distance: %.5f%n", bestDistance);
         System.out.print("Shortest path: [");
         // Printing each node in the route
@@ -75,155 +376,239 @@ public class AntColonyOptimization {
     }
 
     /**
-     * Initializes pheromone levels and distances based on given locations
-     * @param locations List of all locations with coordinates
+     * Initializes the pheromone trails of the sequential mode, on candidate lists if the configuration asks for them,
+     * and sets their starting levels
      */
-    private static void initializeRoads(ArrayList<ArrayList<Double>> locations){
+    void prepare(){
+        int candidateCount = config.candidateCount();
+        if (candidateCount > 0 && candidateCount < locations.size() - 1){
+            initializeCandidates(candidateCount); // Pheromones only on the paths to the candidates
+        } else {
+            initializeRoads(); // Initialize distances and pheromones
+        }
+        config.policy().initialize(trails, greedyLength());
+    }
+
+    /**
+     * Initializes pheromone levels and distances based on the locations, and the cached weights of the choice rule
+     */
+    private void initializeRoads(){
         int n = locations.size();
-        pheromones = new double[n][n]; // Keeps the pheromone levels between two cities
-        distances = new double[n][n]; // Keeps the distances between two cities
+        boolean singlePrecision = config.singlePrecision();
+        distances = SymmetricMatrix.create(n, singlePrecision); // Keeps the distances between two cities
+        heuristics = SymmetricMatrix.create(n, singlePrecision);
 
+        // Paths are symmetric, so each pair is computed once
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++){
-                distances[i][j] = distance(locations.get(i), locations.get(j)); // Calculate distance
-                pheromones[i][j] = INIT_PHEROMONE; // Initialize pheromones
+            for (int j = 0; j <= i; j++){
+                distances.set(i, j, locations.distance(i, j)); // Calculate distance
+                heuristics.set(i, j, 1 / Math.pow(distances.get(i, j), beta));
             }
         }
+        trails = new DenseTrails(n); // Keeps the pheromone levels between two cities
     }
 
     /**
-     * Creates a random route based on pheromone levels and distances
-     * @param locations List of all locations with coordinates
-     * @return A route as a list of indices representing the visitation order
+     * Initializes the candidate lists with their pheromone levels instead of the full matrices
+     * @param candidateCount Number of nearest points in each candidate list
      */
-    private static ArrayList<Integer> createRoute(ArrayList<ArrayList<Double>> locations){
-        ArrayList<Integer> route = new ArrayList<>();
-        int n = locations.size();
-        boolean[] visited = new boolean[n]; // Track visited points
-        int current = random.nextInt(n); // Start from a random point
-        int first = current;
-
-        route.add(first);
-        visited[first] = true;
+    private void initializeCandidates(int candidateCount){
+        distances = null;
+        heuristics = null;
+        trails = new CandidateLists(candidateCount);
+    }
 
+    /**
+     * Builds a route by always going to the closest unvisited point, starting from point 0
+     * @return The length of the route, an estimate of the length of a good route
+     */
+    private double greedyLength(){
+        int n = xs.length;
+        KdTree tree = new KdTree(xs, ys);
+        int[] remaining = new int[n];
+        tree.reset(remaining);
+        tree.remove(0, remaining);
+        double length = 0;
+        int current = 0;
         for (int i = 1; i < n; i++) {
-            current = choosePoint(current, visited, locations);
-            route.add(current);
-            visited[current] = true;
+            int next = tree.nearest(current, remaining);
+            tree.remove(next, remaining);
+            length += distance(current, next);
+            current = next;
         }
-        route.add(first); // Complete the cycle by returning to the starting point
-        return route;
+        return length + distance(current, 0);
     }
 
     /**
-     * Selects the next point to visit based on probability calculated from pheromone levels and distances
-     * @param current The current point index
-     * @param visited Array indicating whether each point has been visited
-     * @param locations A list of all locations with coordinates
-     * @return The index of the next point to visit
+     * Computes the weight of every path in the choice rule, tau^alpha * eta^beta
+     * @param levels Pheromone levels
+     * @param etas eta^beta of the same paths
+     * @param weights Matrix the weights are written to
      */
-    private static int choosePoint(int current, boolean[] visited, ArrayList<ArrayList<Double>> locations){
-        double[] probabilities = new double[locations.size()]; // Probabilities of moving to each point
-        double sum = 0;
-        for (int i = 0; i < locations.size(); i++) {
-            if (!visited[i]){
-                probabilities[i] = Math.pow(pheromones[current][i], ALPHA) / Math.pow(distances[current][i], BETA);
-                sum += probabilities[i];
+    private void computeChoices(double[][] levels, double[][] etas, double[][] weights){
+        for (int i = 0; i < levels.length; i++) {
+            for (int j = 0; j < levels[i].length; j++) {
+                weights[i][j] = Math.pow(levels[i][j], alpha) * etas[i][j];
             }
         }
-        for (int i = 0; i < probabilities.length; i++) {
-            probabilities[i] /= sum; // Normalize probabilities
-        }
-
-        return randomSelect(probabilities); // Randomly select next point based on probabilities
     }
 
     /**
-     * Randomly selects an index based on an array of probabilities
-     * @param probabilities An array of probabilities of moving to each point
-     * @return The selected index
+     * Computes the weight of every path in the choice rule, tau^alpha * eta^beta, on symmetric matrices
+     * @param levels Pheromone levels
+     * @param etas eta^beta of the same paths
+     * @param weights Matrix the weights are written to
      */
-    private static int randomSelect(double[] probabilities){
-        double r = random.nextDouble();
-        double sum = 0;
-        for (int i = 0; i < probabilities.length; i++){
-            sum += probabilities[i];
-            if (sum >= r){
-                return i;
+    private void computeChoices(SymmetricMatrix levels, SymmetricMatrix etas, SymmetricMatrix weights){
+        for (int i = 0; i < levels.size(); i++) {
+            for (int j = 0; j <= i; j++) {
+                weights.set(i, j, Math.pow(levels.get(i, j), alpha) * etas.get(i, j));
             }
         }
-        return probabilities.length - 1; // Return the last index if no other index was selected
     }
 
     /**
-     * Updates pheromone levels along the path taken by an ant
-     * @param route The route taken by the ant
-     * @param routeLength The total distance of the route
+     * Creates a random route on the shared pheromone levels, or on the candidate lists if they are used
+     * @param tour Buffer of n + 1 points the route is written to, starting and ending at the point with index 0
+     * @param random Random generator to use
+     * @param exploitation Probability of taking the path with the highest weight instead of choosing randomly
+     * @return The length of the route
      */
-    private static void updatePheromones(ArrayList<Integer> route, double routeLength){
-        for (int i = 0; i < route.size() - 1; i++){
-            int from = route.get(i);
-            int to = route.get(i + 1);
-            pheromones[from][to] += Q / routeLength;
-            pheromones[to][from] = pheromones[from][to];
+    double createRoute(int[] tour, RandomGenerator random, double exploitation){
+        if (trails instanceof CandidateLists){
+            return ((CandidateLists) trails).createRoute(tour, random, exploitation);
         }
+        return createRoute(((DenseTrails) trails).weights, tour, random, exploitation);
     }
 
     /**
-     * Reduces all pheromone levels to simulate evaporation over time
+     * Creates a random route where the next point is chosen with a probability proportional to the weight of its path.
+     * Only the given buffer, the buffers of the current thread and the random generator are written, so many ants can
+     * build their routes at the same time
+     * @param weights Cached weights tau^alpha * eta^beta of the pheromones the ant follows
+     * @param tour Buffer of n + 1 points the route is written to, starting and ending at the point with index 0
+     * @param random Random generator of the ant
+     * @param exploitation Probability of taking the path with the highest weight instead of choosing randomly
+     * @return The length of the route
      */
-    private static void evaporatePheromones(){
-        for (int i = 0; i < pheromones.length; i++){
-            for (int j = 0; j < pheromones[i].length; j++){
-                pheromones[i][j] *= DEGRADATION; // Reduce pheromone level by the degradation rate
+    private double createRoute(SymmetricMatrix weights, int[] tour, RandomGenerator random,
+                               double exploitation){
+        int n = xs.length;
+        boolean[] visited = VISITED.get();
+        double[] probabilities = PROBABILITIES.get();
+        if (visited.length < n){
+            visited = new boolean[n];
+            probabilities = new double[n];
+            VISITED.set(visited);
+            PROBABILITIES.set(probabilities);
+        }
+        int current = random.nextInt(n); // Start from a random point
+        tour[0] = current;
+        visited[current] = true;
+        for (int i = 1; i < n; i++) {
+            // Unnormalized probabilities, the weights of the paths to the unvisited points
+            double sum = weights.copyRow(current, visited, probabilities);
+            int next = -1;
+            if (exploitation > 0 && random.nextDouble() < exploitation){
+                // Take the unvisited point with the highest weight
+                for (int j = 0; j < n; j++) {
+                    if (!visited[j] && (next == -1 || probabilities[j] > probabilities[next])){
+                        next = j;
+                    }
+                }
+            } else {
+                // The random number is scaled by the sum instead of normalizing the probabilities
+                double r = random.nextDouble() * sum;
+                for (int j = 0; j < n && next == -1; j++) {
+                    if (!visited[j]){
+                        r -= probabilities[j];
+                        if (r <= 0){
+                            next = j;
+                        }
+                    }
+                }
+                if (next == -1){
+                    // Rounding left a tiny remainder, take the last unvisited point
+                    for (int j = n - 1; next == -1; j--) {
+                        if (!visited[j]){
+                            next = j;
+                        }
+                    }
+                }
             }
+            tour[i] = next;
+            visited[next] = true;
+            current = next;
         }
+        return finishRoute(tour, visited);
     }
 
     /**
-     * Reorders the route to start from the point with index 0
-     * @param route The original route
-     * @return A reordered route starting and ending at the point with index 0
+     * Rotates a route in place to start at point 0, closes the cycle and clears the visited flags for the next ant of
+     * this thread
+     * @param tour Buffer of n + 1 points holding a route of all n points
+     * @param visited Visited flags of the route
+     * @return The length of the route
      */
-    private static ArrayList<Integer> reorder(ArrayList<Integer> route){
-        int startIndex = route.indexOf(0);
-        if (startIndex == 0){
-            return route;
-        }
-        ArrayList<Integer> reorderedRoute = new ArrayList<>();
-        reorderedRoute.addAll(route.subList(startIndex, route.size()));
-        reorderedRoute.addAll(route.subList(1, startIndex + 1));
-        return reorderedRoute;
+    private double finishRoute(int[] tour, boolean[] visited){
+        int n = xs.length;
+        int start = 0;
+        while (tour[start] != 0){
+            start++;
+        }
+        reverse(tour, 0, start - 1);
+        reverse(tour, start, n - 1);
+        reverse(tour, 0, n - 1);
+        Arrays.fill(visited, 0, n, false);
+        tour[n] = 0; // Complete the cycle by returning to the starting point
+        return tourLength(tour);
+    }
+
+    /**
+     * Reverses a section of a route
+     * @param tour The route
+     * @param from Index of the first point of the section
+     * @param to Index of the last point of the section
+     */
+    private static void reverse(int[] tour, int from, int to){
+        while (from < to){
+            int swap = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = swap;
+        }
     }
 
     /**
-     * Calculates the total distance for a given route
-     * @param route The route for which to calculate distance
+     * Calculates the length of a route given as an array of points
+     * @param tour The route, whose last point is the same as the first
      * @return The total distance of the route
      */
-    private static double calculateRouteDistance(ArrayList<Integer> route){
+    private double tourLength(int[] tour){
         double length = 0;
-        for (int i = 0; i < route.size() - 1; i++) {
-            length += distances[route.get(i)][route.get(i + 1)];
+        for (int i = 0; i < tour.length - 1; i++) {
+            length += distance(tour[i], tour[i + 1]);
         }
         return length;
     }
 
     /**
-     * Helper method to calculate the distance between two points
-     * @param a First point as a list of doubles
-     * @param b Second point as a list of doubles
-     * @return Distance between point a and b
+     * @param a Index of a point
+     * @param b Index of another point
+     * @return The distance between the points, from the distance matrix if there is one
      */
-    private static double distance(ArrayList<Double> a, ArrayList<Double> b){
-        return Math.sqrt(Math.pow(a.get(0) - b.get(0), 2) + Math.pow(a.get(1) - b.get(1), 2));
+    private double distance(int a, int b){
+        if (distances != null){
+            return distances.get(a, b);
+        }
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     /**
      * Visualizes the pheromone levels on paths
-     * @param locations A list of locations with coordinates
      */
-    private static void drawPheromoneMap(ArrayList<ArrayList<Double>> locations){
+    private void drawPheromoneMap(){
         int canvasWidth = 800;
         int canvasHeight = 800;
         StdDraw.setCanvasSize(canvasWidth, canvasHeight);
@@ -232,26 +617,35 @@ public class AntColonyOptimization {
         StdDraw.enableDoubleBuffering();
 
         // Drawing the lines
-        for (int i = 0; i < locations.size(); i++) {
+        for (int i = 0; i < locations.size() && trails instanceof DenseTrails; i++) {
             for (int j = 0; j < locations.size(); j++){
                 if (i != j){
-                    double x1 = locations.get(i).get(0);
-                    double y1 = locations.get(i).get(1);
-                    double x2 = locations.get(j).get(0);
-                    double y2 = locations.get(j).get(1);
+                    double x1 = locations.x(i);
+                    double y1 = locations.y(i);
+                    double x2 = locations.x(j);
+                    double y2 = locations.y(j);
 
-                    double pheromoneLevel = pheromones[i][j];
+                    double pheromoneLevel = trails.level(i, j);
                     StdDraw.setPenRadius(pheromoneLevel);
                     StdDraw.setPenColor(StdDraw.BLACK);
                     StdDraw.line(x1, y1, x2, y2);
                 }
             }
         }
+        // With candidate lists only the paths to the candidates carry pheromones
+        for (int i = 0; i < locations.size() && trails instanceof CandidateLists; i++) {
+            CandidateLists candidateLists = (CandidateLists) trails;
+            for (int m = 0; m < candidateLists.neighbors[i].length; m++) {
+                int j = candidateLists.neighbors[i][m];
+                StdDraw.setPenRadius(candidateLists.pheromones[i][m]);
+                StdDraw.setPenColor(StdDraw.BLACK);
+                StdDraw.line(xs[i], ys[i], xs[j], ys[j]);
+            }
+        }
         // Drawing the points
         for (int i = 0; i< locations.size(); i++){
-            ArrayList<Double> location = locations.get(i);
-            double x = location.get(0);
-            double y = location.get(1);
+            double x = locations.x(i);
+            double y = locations.y(i);
             StdDraw.setPenColor(StdDraw.LIGHT_GRAY);
             StdDraw.filledCircle(x, y, 0.02);
             StdDraw.setPenColor(StdDraw.BLACK);
@@ -262,10 +656,10 @@ public class AntColonyOptimization {
 
     /**
      * Visualizes the shortest route
-     * @param locations A list of locations with coordinates
+     * @param locations All locations with coordinates
      * @param bestRoute A list of shortest route
      */
-    private static void drawShortestPath(ArrayList<ArrayList<Double>> locations, ArrayList<Integer> bestRoute){
+    static void drawShortestPath(PointSet locations, ArrayList<Integer> bestRoute){
         int canvasWidth = 800;
         int canvasHeight = 800;
         StdDraw.setCanvasSize(canvasWidth, canvasHeight);
@@ -276,13 +670,11 @@ public class AntColonyOptimization {
         StdDraw.setPenRadius(0.005);
 
         // Drawing the lines
-        ArrayList<Double> firstLocation = locations.get(0);
-        double locationX = firstLocation.get(0);
-        double locationY = firstLocation.get(1);
+        double locationX = locations.x(0);
+        double locationY = locations.y(0);
         for (int i = 1; i < bestRoute.size(); i++) {
-            ArrayList<Double> nextLocation = locations.get(bestRoute.get(i));
-            double nextLocationX = nextLocation.get(0);
-            double nextLocationY = nextLocation.get(1);
+            double nextLocationX = locations.x(bestRoute.get(i));
+            double nextLocationY = locations.y(bestRoute.get(i));
             StdDraw.line(locationX, locationY, nextLocationX, nextLocationY);
             locationX = nextLocationX;
             locationY = nextLocationY;
@@ -290,9 +682,8 @@ public class AntColonyOptimization {
 
         // Drawing the points
         for (int i = 0; i< locations.size(); i++){
-            ArrayList<Double> location = locations.get(i);
-            double x = location.get(0);
-            double y = location.get(1);
+            double x = locations.x(i);
+            double y = locations.y(i);
             if (i == 0) {
                 StdDraw.setPenColor(StdDraw.PRINCETON_ORANGE);
             } else {
@@ -304,4 +695,373 @@ public class AntColonyOptimization {
         }
         StdDraw.show();
     }
+
+    /**
+     * Pheromone levels of every path in a symmetric matrix, with the cached choice weight of every path
+     */
+    private class DenseTrails implements PheromoneTrails {
+        final SymmetricMatrix levels; // Pheromone level of every path
+        final SymmetricMatrix weights; // Cached tau^alpha * eta^beta of every path, full since the ants read its rows
+        double initialLevel;
+        private double[] row; // Levels of one point, reused by every measurement of the branching factor
+        private boolean[] keep; // No column is skipped when a row of levels is copied
+
+        /**
+         * Creates trails without pheromones, a policy sets the starting levels
+         * @param n Number of points
+         */
+        DenseTrails(int n){
+            levels = SymmetricMatrix.create(n, config.singlePrecision());
+            weights = SymmetricMatrix.createFull(n, config.singlePrecision());
+        }
+
+        @Override
+        public int size(){
+            return levels.size();
+        }
+
+        @Override
+        public double level(int from, int to){
+            return levels.get(from, to);
+        }
+
+        @Override
+        public void setLevel(int from, int to, double level){
+            levels.set(from, to, level);
+            weights.set(from, to, Math.pow(level, alpha) * heuristics.get(from, to));
+        }
+
+        @Override
+        public void evaporate(double persistence){
+            // (persistence * tau)^alpha * eta^beta = persistence^alpha * weight, so both are single multiplications
+            levels.scale(persistence);
+            weights.scale(Math.pow(persistence, alpha));
+        }
+
+        @Override
+        public void clamp(double min, double max){
+            for (int i = 0, k = 0; i < levels.size(); i++) {
+                for (int j = 0; j <= i; j++, k++) {
+                    double level = levels.getEntry(k); // Entry k of the packed levels is (i, j)
+                    double clamped = Math.min(max, Math.max(min, level));
+                    if (clamped != level){
+                        levels.setEntry(k, clamped);
+                        weights.set(i, j, Math.pow(clamped, alpha) * heuristics.getEntry(k));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void reset(double level){
+            initialLevel = level;
+            levels.fill(level);
+            computeChoices(levels, heuristics, weights);
+        }
+
+        @Override
+        public double initialLevel(){
+            return initialLevel;
+        }
+
+        @Override
+        public double branchingFactor(double lambda){
+            int n = levels.size();
+            if (row == null){
+                row = new double[n];
+                keep = new boolean[n];
+            }
+            long count = 0;
+            for (int i = 0; i < n; i++) {
+                levels.copyRow(i, keep, row);
+                count += PheromoneTrails.branches(row, n, i, lambda);
+            }
+            return n == 0 ? 0 : (double) count / n;
+        }
+    }
+
+    /**
+     * Candidate lists of the points: the nearest points of every point with the pheromone level and the cached choice
+     * weight of the path to each of them. A path that is in the lists of both of its points has the same level in
+     * both, paths outside the lists carry no pheromones
+     */
+    private class CandidateLists implements PheromoneTrails {
+        final KdTree tree; // Spatial index over the points, also finds the closest unvisited point
+        final int[][] neighbors; // Candidate list of every point, closest first
+        final double[][] pheromones; // Pheromone level of the path to each candidate
+        final double[][] heuristics; // eta^beta of the path to each candidate
+        final double[][] weights; // Cached tau^alpha * eta^beta of the path to each candidate
+        double initialLevel;
+
+        /**
+         * Builds the candidate lists of the current points without pheromones, a policy sets the starting levels
+         * @param candidateCount Number of nearest points in each list
+         */
+        CandidateLists(int candidateCount){
+            tree = new KdTree(xs, ys);
+            neighbors = tree.nearestNeighbors(candidateCount);
+            int n = neighbors.length;
+            int k = n == 0 ? 0 : neighbors[0].length;
+            pheromones = new double[n][k];
+            heuristics = new double[n][k];
+            weights = new double[n][k];
+            for (int i = 0; i < n; i++) {
+                for (int m = 0; m < k; m++) {
+                    heuristics[i][m] = 1 / Math.pow(distance(i, neighbors[i][m]), beta);
+                }
+            }
+        }
+
+        /**
+         * @param from Index of a point
+         * @param to Index of another point
+         * @return Position of the second point in the candidate list of the first, or -1 if it is not a candidate
+         */
+        int indexOf(int from, int to){
+            int[] list = neighbors[from];
+            for (int m = 0; m < list.length; m++) {
+                if (list[m] == to){
+                    return m;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Creates a random route where the next point is chosen among the unvisited candidates of the current point,
+         * with a probability proportional to the weight of its path, or is the closest unvisited point if all
+         * candidates are visited
+         * @param tour Buffer of n + 1 points the route is written to, starting and ending at the point with index 0
+         * @param random Random generator of the ant
+         * @param exploitation Probability of taking the candidate with the highest weight instead of choosing randomly
+         * @return The length of the route
+         */
+        double createRoute(int[] tour, RandomGenerator random, double exploitation){
+            int n = neighbors.length;
+            boolean[] visited = VISITED.get();
+            double[] probabilities = PROBABILITIES.get();
+            int[] remaining = REMAINING.get();
+            // A dense solve on this thread may have grown the shared buffers but not remaining
+            if (visited.length < n){
+                visited = new boolean[n];
+                probabilities = new double[n];
+                VISITED.set(visited);
+                PROBABILITIES.set(probabilities);
+            }
+            if (remaining.length < n){
+                remaining = new int[n];
+                REMAINING.set(remaining);
+            }
+            tree.reset(remaining);
+            int current = random.nextInt(n); // Start from a random point
+            tour[0] = current;
+            visited[current] = true;
+            tree.remove(current, remaining);
+            for (int i = 1; i < n; i++) {
+                int[] list = neighbors[current];
+                double[] row = weights[current];
+                double sum = 0;
+                for (int m = 0; m < list.length; m++) {
+                    probabilities[m] = visited[list[m]] ? 0 : row[m];
+                    sum += probabilities[m];
+                }
+                int next = -1;
+                if (sum > 0 && exploitation > 0 && random.nextDouble() < exploitation){
+                    // Take the unvisited candidate with the highest weight
+                    double highest = 0;
+                    for (int m = 0; m < list.length; m++) {
+                        if (probabilities[m] > highest){
+                            highest = probabilities[m];
+                            next = list[m];
+                        }
+                    }
+                } else if (sum > 0){
+                    double r = random.nextDouble() * sum;
+                    for (int m = 0; m < list.length && next == -1; m++) {
+                        if (probabilities[m] > 0){
+                            r -= probabilities[m];
+                            if (r <= 0){
+                                next = list[m];
+                            }
+                        }
+                    }
+                    // Rounding left a tiny remainder, take the last unvisited candidate
+                    for (int m = list.length - 1; next == -1; m--) {
+                        if (probabilities[m] > 0){
+                            next = list[m];
+                        }
+                    }
+                } else {
+                    next = tree.nearest(current, remaining); // All candidates are visited
+                }
+                tour[i] = next;
+                visited[next] = true;
+                tree.remove(next, remaining);
+                current = next;
+            }
+            return finishRoute(tour, visited);
+        }
+
+        @Override
+        public int size(){
+            return neighbors.length;
+        }
+
+        @Override
+        public double level(int from, int to){
+            int m = indexOf(from, to);
+            if (m >= 0){
+                return pheromones[from][m];
+            }
+            m = indexOf(to, from);
+            return m >= 0 ? pheromones[to][m] : 0;
+        }
+
+        @Override
+        public void setLevel(int from, int to, double level){
+            set(from, to, level);
+            set(to, from, level);
+        }
+
+        /**
+         * Sets the pheromone level of the path between two points if the second one is a candidate of the first
+         * @param from Index of a point
+         * @param to Index of another point
+         * @param level The new level
+         */
+        private void set(int from, int to, double level){
+            int m = indexOf(from, to);
+            if (m >= 0){
+                pheromones[from][m] = level;
+                weights[from][m] = Math.pow(level, alpha) * heuristics[from][m];
+            }
+        }
+
+        @Override
+        public void evaporate(double persistence){
+            for (double[] row : pheromones) {
+                for (int m = 0; m < row.length; m++) {
+                    row[m] *= persistence;
+                }
+            }
+            computeChoices(pheromones, heuristics, weights);
+        }
+
+        @Override
+        public void clamp(double min, double max){
+            for (double[] row : pheromones) {
+                for (int m = 0; m < row.length; m++) {
+                    row[m] = Math.min(max, Math.max(min, row[m]));
+                }
+            }
+            computeChoices(pheromones, heuristics, weights);
+        }
+
+        @Override
+        public void reset(double level){
+            initialLevel = level;
+            for (double[] row : pheromones) {
+                Arrays.fill(row, level);
+            }
+            computeChoices(pheromones, heuristics, weights);
+        }
+
+        @Override
+        public double initialLevel(){
+            return initialLevel;
+        }
+
+        @Override
+        public double branchingFactor(double lambda){
+            // Only the candidates carry pheromones, so the factor counts candidates and takes n * k steps
+            long count = 0;
+            for (double[] levels : pheromones) {
+                count += PheromoneTrails.branches(levels, levels.length, -1, lambda);
+            }
+            return pheromones.length == 0 ? 0 : (double) count / pheromones.length;
+        }
+    }
+
+    /**
+     * One colony of the parallel mode: its own pheromone levels, the tours of its ants in the current iteration and
+     * the best tour it has found
+     */
+    private class Colony {
+        final DenseTrails trails; // Pheromone levels of this colony
+        final int[][] tours; // Tour buffer of each ant, reused in every iteration
+        final double[] lengths; // Length of each ant's tour in the current iteration
+        int[] bestTour; // Best tour found by this colony
+        double bestLength = Double.MAX_VALUE;
+
+        /**
+         * Creates a colony without pheromones, the policy sets the starting levels
+         * @param n Number of points
+         * @param ants Number of ants per iteration
+         */
+        Colony(int n, int ants){
+            trails = new DenseTrails(n);
+            tours = new int[ants][n + 1];
+            lengths = new double[ants];
+        }
+
+        /**
+         * Records the best tour of the iteration and hands the tours of all ants to the policy in ant order, then ends
+         * the iteration of the policy
+         * @param policy The pheromone policy
+         * @param iteration Index of the iteration
+         * @param localSearch Local search for the best tour of the iteration, which is then handed over once more, or
+         *                    null
+         */
+        void finishIteration(PheromonePolicy policy, int iteration, LocalSearch localSearch){
+            int iterationBest = 0;
+            for (int ant = 0; ant < tours.length; ant++) {
+                if (lengths[ant] < bestLength){
+                    bestLength = lengths[ant];
+                    bestTour = tours[ant].clone();
+                }
+                if (lengths[ant] < lengths[iterationBest]){
+                    iterationBest = ant;
+                }
+                policy.antFinished(trails, tours[ant], lengths[ant]);
+            }
+            if (localSearch != null){
+                // The buffer of the ant is free again, so it is improved in place
+                lengths[iterationBest] = localSearch.improve(tours[iterationBest], lengths[iterationBest]);
+                if (lengths[iterationBest] < bestLength){
+                    bestLength = lengths[iterationBest];
+                    bestTour = tours[iterationBest].clone();
+                }
+                policy.antFinished(trails, tours[iterationBest], lengths[iterationBest]);
+            }
+            policy.iterationFinished(trails, iteration, tours[iterationBest], lengths[iterationBest], bestTour,
+                    bestLength);
+        }
+
+        /**
+         * Records the best tour of an iteration that was cut short by the time budget, without changing the pheromones
+         */
+        void keepBest(){
+            for (int ant = 0; ant < tours.length; ant++) {
+                if (lengths[ant] < bestLength){
+                    bestLength = lengths[ant];
+                    bestTour = tours[ant].clone();
+                }
+            }
+        }
+
+        /**
+         * Takes in the best tour of another colony: it becomes the best tour of this colony if it is shorter, and
+         * deposits the way the policy lets a best tour deposit
+         * @param tour The tour
+         * @param length The length of the tour
+         * @param policy The pheromone policy
+         */
+        void receive(int[] tour, double length, PheromonePolicy policy){
+            if (length < bestLength){
+                bestLength = length;
+                bestTour = tour.clone();
+            }
+            policy.migrantArrived(trails, tour, length, bestLength);
+        }
+    }
 }
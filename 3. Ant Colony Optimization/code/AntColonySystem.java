@@ -0,0 +1,57 @@
+/**
+ * The Ant Colony System (Dorigo and Gambardella): an ant takes the path with the highest weight with probability
+ * EXPLOITATION and only chooses randomly otherwise (pseudo-random proportional rule). After its route, an ant moves the
+ * levels of the paths it used back towards the initial level (local update), so the following ants try other paths,
+ * and at the end of each iteration only the best route found so far deposits pheromones and evaporates (global update)
+ * The local update is applied when an ant has finished its route rather than after every step, so the ants of an
+ * iteration can build their routes at the same time
+ */
+public class AntColonySystem implements PheromonePolicy {
+    private static final double EXPLOITATION = 0.9; // Probability of taking the best path (q0)
+    private static final double LOCAL_EVAPORATION = 0.1; // Weight of the initial level in the local update (xi)
+    private static final double GLOBAL_EVAPORATION = 0.1; // Weight of the deposit in the global update (rho)
+    private static final double Q = 0.01; // Deposit constant, as much as all ants of an Ant System iteration together
+
+    @Override
+    public void initialize(PheromoneTrails trails, double greedyLength){
+        trails.reset(Q / (trails.size() * greedyLength));
+    }
+
+    @Override
+    public double exploitation(){
+        return EXPLOITATION;
+    }
+
+    @Override
+    public void antFinished(PheromoneTrails trails, int[] tour, double length){
+        double initial = trails.initialLevel();
+        for (int i = 0; i < tour.length - 1; i++) {
+            double level = trails.level(tour[i], tour[i + 1]);
+            trails.setLevel(tour[i], tour[i + 1], (1 - LOCAL_EVAPORATION) * level + LOCAL_EVAPORATION * initial);
+        }
+    }
+
+    @Override
+    public void migrantArrived(PheromoneTrails trails, int[] tour, double length, double bestLength){
+        globalUpdate(trails, tour, length);
+    }
+
+    @Override
+    public void iterationFinished(PheromoneTrails trails, int iteration, int[] iterationBest,
+                                  double iterationBestLength, int[] bestTour, double bestLength){
+        globalUpdate(trails, bestTour, bestLength);
+    }
+
+    /**
+     * Moves the levels of the paths of a route towards its deposit
+     * @param trails The pheromone trails
+     * @param tour The route
+     * @param length The length of the route
+     */
+    private static void globalUpdate(PheromoneTrails trails, int[] tour, double length){
+        for (int i = 0; i < tour.length - 1; i++) {
+            double level = trails.level(tour[i], tour[i + 1]);
+            trails.setLevel(tour[i], tour[i + 1], (1 - GLOBAL_EVAPORATION) * level + GLOBAL_EVAPORATION * Q / length);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * The original Ant System: every ant deposits q / length on its route as soon as it has finished, and all pheromones
+ * evaporate at the end of each iteration
+ */
+public class AntSystem implements PheromonePolicy {
+    private final double degradation; // Rate at which pheromones evaporate
+    private final double q; // Constant used to calculate pheromone deposition
+    private final double initialPheromone; // Initial pheromone level on paths
+
+    /**
+     * The Ant System with the parameters the project has always used
+     */
+    public AntSystem(){
+        this(0.5, 0.0001, 0.1);
+    }
+
+    /**
+     * @param degradation Rate at which pheromones evaporate, the part of the pheromones kept in each iteration
+     * @param q Constant used to calculate pheromone deposition, an ant deposits q / length on its route
+     * @param initialPheromone Initial pheromone level on paths
+     */
+    public AntSystem(double degradation, double q, double initialPheromone){
+        this.degradation = degradation;
+        this.q = q;
+        this.initialPheromone = initialPheromone;
+    }
+
+    @Override
+    public void initialize(PheromoneTrails trails, double greedyLength){
+        trails.reset(initialPheromone);
+    }
+
+    @Override
+    public double exploitation(){
+        return 0;
+    }
+
+    @Override
+    public void antFinished(PheromoneTrails trails, int[] tour, double length){
+        for (int i = 0; i < tour.length - 1; i++) {
+            trails.deposit(tour[i], tour[i + 1], q / length);
+        }
+    }
+
+    @Override
+    public void migrantArrived(PheromoneTrails trails, int[] tour, double length, double bestLength){
+        antFinished(trails, tour, length); // Every route deposits the same way
+    }
+
+    @Override
+    public void iterationFinished(PheromoneTrails trails, int iteration, int[] iterationBest,
+                                  double iterationBestLength, int[] bestTour, double bestLength){
+        trails.evaporate(degradation); // Reduce pheromone levels by the degradation rate
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the shortest route exactly like the brute-force method, but skips every branch of the search that cannot lead
+ * to a shorter route than the best one found so far (branch and bound).
+ * Routes are extended one point at a time from point 0 and their cost is kept as a running sum over a precomputed
+ * distance matrix. A partial route is abandoned when its cost plus a lower bound for the rest exceeds the best route:
+ * the rest still has to leave the current point, connect all unvisited points and come back to point 0, which costs
+ * at least the cheapest edge out of the current point, a minimum spanning tree of the unvisited points and the
+ * cheapest edge back to point 0. The search starts with a good route from a greedy start improved by 2-opt and
+ * Or-opt, so most branches are cut from the beginning, and tries the closest points first.
+ */
+public class BranchAndBound {
+    private static final double EPSILON = 1e-9; // Branches within this of the best route are not explored
+
+    private final int n; // Number of points
+    private final double[][] distances; // Distance between every two points
+    private final int[][] closest; // Other points of every point, closest first
+    private final int[] route; // Current partial route
+    private final boolean[] visited; // Whether each point is on the current partial route
+    private final int[] bestRoute; // Best complete route so far, starting and ending at point 0
+    private double bestDistance; // Length of the best route so far
+    private final double[] key; // Buffers of the minimum spanning tree
+    private final boolean[] inTree;
+
+    /**
+     * Main method that finds the shortest route with branch and bound, prints it and draws it.
+     * @param locations All locations with coordinates
+     */
+    public static void findRoute(PointSet locations) {
+        double startTime = System.currentTimeMillis(); // Starting time for timing the method execution
+        int[] tour = solve(locations);
+        ArrayList<Integer> bestRoute = new ArrayList<>();
+        double bestDistance = 0;
+        for (int i = 0; i < tour.length; i++) {
+            bestRoute.add(tour[i]);
+            if (i > 0){
+                bestDistance += locations.distance(tour[i - 1], tour[i]);
+            }
+        }
+        AntColonyOptimization.drawShortestPath(locations, bestRoute);
+
+        double endTime = System.currentTimeMillis(); // Ending time
+        double duration = (endTime - startTime) / 1000; // Duration in seconds
+        System.out.println("Method: Branch and Bound");
+        AntColonyOptimization.printResult(bestRoute, bestDistance, duration);
+    }
+
+    /**
+     * Finds the shortest route through all locations.
+     * @param locations All locations with coordinates
+     * @return The shortest route as n + 1 points, starting and ending at point 0
+     */
+    public static int[] solve(PointSet locations) {
+        int n = locations.size();
+        int[] tour = new int[n + 1];
+        if (n < 4){
+            for (int i = 0; i < n; i++) {
+                tour[i] = i; // Every route of fewer than four points has the same length
+            }
+            return tour;
+        }
+        BranchAndBound search = new BranchAndBound(locations);
+        search.search(1, 0, 0);
+        return search.bestRoute;
+    }
+
+    /**
+     * Prepares the distance matrix and the starting route.
+     * @param locations All locations with coordinates
+     */
+    private BranchAndBound(PointSet locations) {
+        n = locations.size();
+        distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = locations.distance(i, j);
+            }
+        }
+        closest = new int[n][];
+        for (int i = 0; i < n; i++) {
+            final int from = i;
+            closest[i] = IntStream.range(0, n).filter(j -> j != from).boxed()
+                    .sorted((a, b) -> Double.compare(distances[from][a], distances[from][b]))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        route = new int[n];
+        visited = new boolean[n];
+        visited[0] = true;
+        key = new double[n];
+        inTree = new boolean[n];
+
+        // Greedy route from point 0, improved by local search, as the first upper bound
+        bestRoute = new int[n + 1];
+        for (int i = 1; i < n; i++) {
+            for (int next : closest[bestRoute[i - 1]]) {
+                if (!visited[next]){
+                    bestRoute[i] = next;
+                    visited[next] = true;
+                    break;
+                }
+            }
+        }
+        Arrays.fill(visited, 1, n, false);
+        LocalSearch.sequence(new TwoOpt(locations), new OrOpt(locations)).improve(bestRoute, length(bestRoute));
+        bestDistance = length(bestRoute);
+    }
+
+    /**
+     * Extends the partial route in every way that can still beat the best route.
+     * @param depth Number of points on the partial route
+     * @param current The last point of the partial route
+     * @param cost Length of the partial route
+     */
+    private void search(int depth, int current, double cost) {
+        if (depth == n) {
+            double total = cost + distances[current][0]; // Return to location 0
+            if (total < bestDistance - EPSILON){
+                bestDistance = total;
+                System.arraycopy(route, 0, bestRoute, 0, n);
+                bestRoute[n] = 0;
+            }
+            return;
+        }
+        if (cost + remainingBound(current) >= bestDistance - EPSILON){
+            return;
+        }
+        for (int next : closest[current]) {
+            if (!visited[next] && next != 0){
+                visited[next] = true;
+                route[depth] = next;
+                search(depth + 1, next, cost + distances[current][next]);
+                visited[next] = false;
+            }
+        }
+    }
+
+    /**
+     * Lower bound for completing the route: the cheapest edge from the current point to an unvisited point, a minimum
+     * spanning tree of the unvisited points (Prim's algorithm) and the cheapest edge from them back to point 0.
+     * @param current The last point of the partial route
+     * @return The lower bound
+     */
+    private double remainingBound(int current) {
+        double out = Double.MAX_VALUE;
+        double back = Double.MAX_VALUE;
+        int first = -1;
+        for (int i = 1; i < n; i++) {
+            inTree[i] = visited[i];
+            if (!visited[i]){
+                out = Math.min(out, distances[current][i]);
+                back = Math.min(back, distances[i][0]);
+                key[i] = Double.MAX_VALUE;
+                first = i;
+            }
+        }
+        double tree = 0;
+        key[first] = 0;
+        while (true) {
+            int next = -1;
+            for (int i = 1; i < n; i++) {
+                if (!inTree[i] && (next == -1 || key[i] < key[next])){
+                    next = i;
+                }
+            }
+            if (next == -1){
+                break;
+            }
+            inTree[next] = true;
+            tree += key[next];
+            for (int i = 1; i < n; i++) {
+                if (!inTree[i] && distances[next][i] < key[i]){
+                    key[i] = distances[next][i];
+                }
+            }
+        }
+        return out + tree + back;
+    }
+
+    /**
+     * @param tour A route of n + 1 points
+     * @return The length of the route
+     */
+    private double length(int[] tour) {
+        double total = 0;
+        for (int i = 0; i < tour.length - 1; i++) {
+            total += distances[tour[i]][tour[i + 1]];
+        }
+        return total;
+    }
+}
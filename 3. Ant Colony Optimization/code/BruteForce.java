@@ -1,36 +1,34 @@
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implements a brute-force approach to find the shortest path for the problem.
- * This class iteratively evaluates all possible routes to determine the one with the least distance.
+ * This class evaluates all possible routes to determine the one with the least distance. The first levels of the
+ * permutation tree are split into fork-join tasks that run on all cores, and every task stops extending a partial
+ * route as soon as it is longer than the best route found by any task so far. Routes are int arrays over a
+ * precomputed distance matrix, and the search keeps no static state, so several searches can run at the same time.
  */
 public class BruteForce {
-
-    private static double bestDistance = Double.MAX_VALUE; // Stores the shortest distance found
-    private static Integer[] bestRoute; // Stores the best route corresponding to the shortest distance.
+    private static final int SPLIT_DEPTH = 2; // Levels of the permutation tree that are split into separate tasks
 
     /**
      * Main method that finds the shortest route by examining all permutations of routes.
      * It uses a brute-force method which, while computationally expensive, guarantees to find the shortest path.
-     * @param locations List of all locations with coordinates
+     * @param locations All locations with coordinates
      */
-    public static void findRoute(ArrayList<ArrayList<Double>> locations) {
+    public static void findRoute(PointSet locations) {
         double startTime = System.currentTimeMillis(); // Starting time for timing the method execution
 
-        // Initialize route with locations indices, starting from 1 since 0 is considered the starting point
-        Integer[] route = new Integer[locations.size() - 1];
-        for (int i = 0; i < route.length; i++){
-            route[i] = i + 1;
-        }
-        bestRoute = new Integer[locations.size() + 1];
-        permute(route, 0, locations); // Begin permutation to explore all possible routes
+        Tour best = solve(locations);
+        int[] bestRoute = best.route();
 
-        drawPath(locations); // Visualization of the best route
+        drawPath(locations, bestRoute); // Visualization of the best route
 
         double endTime = System.currentTimeMillis(); // Ending time
         double duration = (endTime - startTime) / 1000; // Duration in seconds
         System.out.println("Method: Brute-Force Method");
-        System.out.printf("Shortest Distance: %.5f%n", bestDistance);
+        System.out.printf("Shortest Distance: %.5f%n", best.length());
         System.out.print("Shortest path: [");
         // Printing each node in the route
         for (int i = 0; i < bestRoute.length; i++){
@@ -45,65 +43,143 @@ public class BruteForce {
     }
 
     /**
-     * Method to recursively permute routes and evaluate their distances
-     * @param route Current permutation of routes being evaluated
-     * @param k Current index in the permutation process
-     * @param locations List of all locations with coordinates
+     * Finds the shortest route through all locations by examining all permutations on the common fork-join pool.
+     * Of several shortest routes, the one that comes first point by point is returned.
+     * @param locations All locations with coordinates
+     * @return The shortest route, starting and ending at location 0
      */
-    private static void permute(Integer[] route, int k, ArrayList<ArrayList<Double>> locations) {
-        if (k == route.length) {
-            double currentDistance = calculateRouteDistance(route, locations);
-            if (currentDistance < bestDistance) {
-                bestDistance = currentDistance;
-                bestRoute[0] = 0; // Start from location 0
-                System.arraycopy(route, 0, bestRoute, 1, route.length);
-                bestRoute[bestRoute.length - 1] = 0; // Return to location 0
+    public static Tour solve(PointSet locations) {
+        int n = locations.size();
+        double[][] distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = locations.distance(i, j);
             }
-        } else {
+        }
+
+        // Initialize route with locations indices, starting from 1 since 0 is considered the starting point
+        int[] route = new int[n - 1];
+        for (int i = 0; i < route.length; i++){
+            route[i] = i + 1;
+        }
+        // The route in index order is the first bound
+        int[] first = new int[n + 1];
+        System.arraycopy(route, 0, first, 1, route.length);
+        AtomicReference<Tour> best = new AtomicReference<>(new Tour(first, calculateRouteDistance(first, distances)));
+        ForkJoinPool.commonPool().invoke(new Search(distances, route, 0, 0, best));
+        return best.get();
+    }
+
+    /**
+     * One subtree of the permutation tree: all routes that start with the first k points of its route. Near the root
+     * the subtree is split into one task per next point, deeper subtrees are searched recursively in the task itself.
+     */
+    private static class Search extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[][] distances; // Distance between every two points
+        private final int[] route; // Houses in visiting order, the first k of them are fixed
+        private final int k; // Number of fixed houses
+        private final double cost; // Distance from location 0 along the fixed houses
+        private final AtomicReference<Tour> best; // Best route of all tasks
+
+        /**
+         * @param distances Distance between every two points
+         * @param route Houses in visiting order, owned by this task
+         * @param k Number of fixed houses
+         * @param cost Distance from location 0 along the fixed houses
+         * @param best Best route of all tasks
+         */
+        Search(double[][] distances, int[] route, int k, double cost, AtomicReference<Tour> best){
+            this.distances = distances;
+            this.route = route;
+            this.k = k;
+            this.cost = cost;
+            this.best = best;
+        }
+
+        @Override
+        protected void compute(){
+            if (k >= SPLIT_DEPTH || k >= route.length){
+                permute(k, cost);
+                return;
+            }
+            int previous = k == 0 ? 0 : route[k - 1];
+            Search[] tasks = new Search[route.length - k];
+            for (int i = k; i < route.length; i++) {
+                int[] next = route.clone();
+                next[k] = route[i];
+                next[i] = route[k];
+                tasks[i - k] = new Search(distances, next, k + 1, cost + distances[previous][next[k]], best);
+            }
+            invokeAll(tasks);
+        }
+
+        /**
+         * Method to recursively permute routes and evaluate their distances
+         * @param k Current index in the permutation process
+         * @param cost Distance from location 0 along the first k houses
+         */
+        private void permute(int k, double cost) {
+            if (cost > best.get().length()){
+                return; // Longer than the best route even before it is complete
+            }
+            if (k == route.length) {
+                offer(cost + distances[k == 0 ? 0 : route[k - 1]][0]); // Return to location 0
+                return;
+            }
+            int previous = k == 0 ? 0 : route[k - 1];
             for (int i = k; i < route.length; i++) {
                 int temp = route[k];
                 route[k] = route[i];
                 route[i] = temp;
 
-                permute(route, k + 1, locations);
+                permute(k + 1, cost + distances[previous][route[k]]);
 
                 temp = route[k];
                 route[k] = route[i];
                 route[i] = temp;
             }
         }
-    }
 
-    /**
-     * Helper method to calculate the distance between two points
-     * @param a First point as a list of doubles
-     * @param b Second point as a list of doubles
-     * @return Distance between point a and b
-     */
-    private static double distance(ArrayList<Double> a, ArrayList<Double> b){
-        return Math.sqrt(Math.pow(a.get(0) - b.get(0), 2) + Math.pow(a.get(1) - b.get(1), 2));
+        /**
+         * Replaces the best route with the current complete route if it is shorter, or as long and first point by point
+         * @param length Total distance of the current route
+         */
+        private void offer(double length){
+            Tour current = best.get();
+            if (length > current.length()){
+                return;
+            }
+            int[] complete = new int[route.length + 2];
+            System.arraycopy(route, 0, complete, 1, route.length); // Start and return to location 0
+            Tour candidate = new Tour(complete, length);
+            while ((length < current.length() || length == current.length() && candidate.precedes(current))
+                    && !best.compareAndSet(current, candidate)){
+                current = best.get();
+            }
+        }
     }
 
     /**
      * Calculates the total distance of a given route
-     * @param route An array of indices indicating the route taken
-     * @param locations List of all locations with coordinates
+     * @param route An array of indices indicating the route taken, starting and ending at location 0
+     * @param distances Distance between every two points
      * @return The total distance of the route
      */
-    private static double calculateRouteDistance(Integer[] route, ArrayList<ArrayList<Double>> locations){
-        double totalDistance = distance(locations.get(0), locations.get(route[0]));
+    private static double calculateRouteDistance(int[] route, double[][] distances){
+        double totalDistance = 0;
         for (int i = 0; i < route.length - 1; i++){
-            totalDistance += distance(locations.get(route[i]), locations.get(route[i + 1]));
+            totalDistance += distances[route[i]][route[i + 1]];
         }
-        totalDistance += distance(locations.get(route[route.length - 1]), locations.get(0));
         return totalDistance;
     }
 
     /**
      * Visualizes the best route
-     * @param locations List of all locations with coordinates
+     * @param locations All locations with coordinates
+     * @param bestRoute The best route, starting and ending at location 0
      */
-    private static void drawPath(ArrayList<ArrayList<Double>> locations){
+    private static void drawPath(PointSet locations, int[] bestRoute){
         int canvasWidth = 800;
         int canvasHeight = 800;
         StdDraw.setCanvasSize(canvasWidth, canvasHeight);
@@ -111,31 +187,28 @@ public class BruteForce {
         StdDraw.setYscale(0, 1);
         StdDraw.setPenColor(StdDraw.BLACK);
         StdDraw.setPenRadius(0.005);
-        ArrayList<Double> firstLocation = locations.get(0);
-        double locationX = firstLocation.get(0);
-        double locationY = firstLocation.get(1);
+        double locationX = locations.x(0);
+        double locationY = locations.y(0);
         // Drawing the lines representing paths between points
         for (int idx : bestRoute) {
-            ArrayList<Double> nextLocation = locations.get(idx);
-            double nextLocationX = nextLocation.get(0);
-            double nextLocationY = nextLocation.get(1);
+            double nextLocationX = locations.x(idx);
+            double nextLocationY = locations.y(idx);
             StdDraw.line(locationX, locationY, nextLocationX, nextLocationY);
             locationX = nextLocationX;
             locationY = nextLocationY;
         }
 
-        StdDraw.line(locationX, locationY, firstLocation.get(0), firstLocation.get(1));
+        StdDraw.line(locationX, locationY, locations.x(0), locations.y(0));
         // Drawing the points representing the houses
         for (int i = 0; i < locations.size(); i++) {
-            ArrayList<Double> location = locations.get(i);
             if (i == 0) {
                 StdDraw.setPenColor(StdDraw.PRINCETON_ORANGE);
             } else {
                 StdDraw.setPenColor(StdDraw.LIGHT_GRAY);
             }
-            StdDraw.filledCircle(location.get(0), location.get(1), 0.02);
+            StdDraw.filledCircle(locations.x(i), locations.y(i), 0.02);
             StdDraw.setPenColor(StdDraw.BLACK);
-            StdDraw.text(location.get(0), location.get(1), Integer.toString(i + 1));
+            StdDraw.text(locations.x(i), locations.y(i), Integer.toString(i + 1));
         }
         StdDraw.show();
     }
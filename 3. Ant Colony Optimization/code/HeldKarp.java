@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the shortest route exactly with the Held-Karp dynamic program. For every subset of the houses and every house
+ * in it, it keeps the length of the shortest path that starts at point 0, visits exactly that subset and ends at that
+ * house. The subset is a bitmask, so the lengths live in one primitive array indexed by subset and last house, and all
+ * subsets of the same size only depend on the smaller ones, so each size is computed in parallel.
+ * This takes n^2 * 2^n steps instead of n!, but also 2^n * n values of memory: about 100 MB for 20 points and 3 GB for
+ * 25, so the memory is checked before the array is created.
+ */
+public class HeldKarp {
+
+    /**
+     * Main method that finds the shortest route with Held-Karp, prints it and draws it.
+     * @param locations All locations with coordinates
+     */
+    public static void findRoute(PointSet locations) {
+        if (!fitsInMemory(locations.size())){
+            long bytes = requiredBytes(locations.size());
+            System.out.println("Not enough memory for Held-Karp with " + locations.size() + " points, "
+                    + (bytes == Long.MAX_VALUE ? "too many points." : bytes / (1 << 20) + " MB needed."));
+            return;
+        }
+        double startTime = System.currentTimeMillis(); // Starting time for timing the method execution
+        int[] tour = solve(locations);
+        ArrayList<Integer> bestRoute = new ArrayList<>();
+        double bestDistance = 0;
+        for (int i = 0; i < tour.length; i++) {
+            bestRoute.add(tour[i]);
+            if (i > 0){
+                bestDistance += locations.distance(tour[i - 1], tour[i]);
+            }
+        }
+        AntColonyOptimization.drawShortestPath(locations, bestRoute);
+
+        double endTime = System.currentTimeMillis(); // Ending time
+        double duration = (endTime - startTime) / 1000; // Duration in seconds
+        System.out.println("Method: Held-Karp");
+        AntColonyOptimization.printResult(bestRoute, bestDistance, duration);
+    }
+
+    /**
+     * Finds the shortest route through all locations.
+     * @param locations All locations with coordinates
+     * @return The shortest route as n + 1 points, starting and ending at point 0
+     * @throws IllegalArgumentException If the table of the dynamic program does not fit in memory
+     */
+    public static int[] solve(PointSet locations) {
+        int n = locations.size();
+        int[] tour = new int[n + 1];
+        if (n < 4){
+            for (int i = 0; i < n; i++) {
+                tour[i] = i; // Every route of fewer than four points has the same length
+            }
+            return tour;
+        }
+        if (!fitsInMemory(n)){
+            throw new IllegalArgumentException("Held-Karp with " + n + " points needs " + requiredBytes(n) + " bytes");
+        }
+        double[][] distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = locations.distance(i, j);
+            }
+        }
+
+        // Houses 1 to n - 1 are the bits 0 to m - 1 of a subset, lengths[subset * m + last] is the shortest path from
+        // point 0 through the subset ending at house last + 1
+        int m = n - 1;
+        int subsets = 1 << m;
+        double[] lengths = new double[subsets * m];
+        for (int last = 0; last < m; last++) {
+            lengths[(1 << last) * m + last] = distances[0][last + 1];
+        }
+        for (int size = 2; size <= m; size++) {
+            final int layer = size;
+            IntStream.range(0, subsets).parallel().filter(subset -> Integer.bitCount(subset) == layer)
+                    .forEach(subset -> {
+                        for (int last = 0; last < m; last++) {
+                            if ((subset & 1 << last) != 0){
+                                lengths[subset * m + last] = shortestBefore(lengths, distances, m, subset, last);
+                            }
+                        }
+                    });
+        }
+
+        // Walk back from the full subset, choosing the same previous house the table was filled with
+        int subset = subsets - 1;
+        int last = -1;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < m; i++) {
+            double length = lengths[subset * m + i] + distances[i + 1][0]; // Return to location 0
+            if (length < best){
+                best = length;
+                last = i;
+            }
+        }
+        for (int position = m; position > 0; position--) {
+            tour[position] = last + 1;
+            int previous = previousHouse(lengths, distances, m, subset, last);
+            subset ^= 1 << last;
+            last = previous;
+        }
+        return tour;
+    }
+
+    /**
+     * @param lengths Table of the shortest paths
+     * @param distances Distance between every two points
+     * @param m Number of houses
+     * @param subset Houses of the path, with at least two of them
+     * @param last The house the path ends at
+     * @return Length of the shortest path from point 0 through the subset ending at the given house
+     */
+    private static double shortestBefore(double[] lengths, double[][] distances, int m, int subset, int last) {
+        int rest = subset ^ 1 << last;
+        double best = Double.MAX_VALUE;
+        for (int previous = 0; previous < m; previous++) {
+            if ((rest & 1 << previous) != 0){
+                best = Math.min(best, lengths[rest * m + previous] + distances[previous + 1][last + 1]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param lengths Table of the shortest paths
+     * @param distances Distance between every two points
+     * @param m Number of houses
+     * @param subset Houses of the path
+     * @param last The house the path ends at
+     * @return The house before the last one on the shortest path, or -1 if the path only has one house
+     */
+    private static int previousHouse(double[] lengths, double[][] distances, int m, int subset, int last) {
+        int rest = subset ^ 1 << last;
+        int house = -1;
+        double best = Double.MAX_VALUE;
+        for (int previous = 0; previous < m; previous++) {
+            if ((rest & 1 << previous) != 0){
+                double length = lengths[rest * m + previous] + distances[previous + 1][last + 1];
+                if (length < best){
+                    best = length;
+                    house = previous;
+                }
+            }
+        }
+        return house;
+    }
+
+    /**
+     * @param n Number of points
+     * @return Bytes of the table of the dynamic program, or Long.MAX_VALUE if the number does not fit in a long.
+     */
+    static long requiredBytes(int n) {
+        if (n < 2){
+            return 0;
+        }
+        if (n - 1 >= Long.SIZE - 1){
+            return Long.MAX_VALUE; // 2^(n - 1) alone is too large
+        }
+        try {
+            return Math.multiplyExact(Math.multiplyExact(1L << (n - 1), (long) n - 1), Double.BYTES);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Checks whether the table of the dynamic program fits in a Java array and in the memory the JVM can still use.
+     * @param n Number of points
+     * @return Whether Held-Karp can run for n points
+     */
+    static boolean fitsInMemory(int n) {
+        if (n > 32 || requiredBytes(n) / Double.BYTES > Integer.MAX_VALUE - 8){
+            return false;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return requiredBytes(n) < available;
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * A two-dimensional k-d tree over the points of an instance, used to build the candidate lists of the ACO and to find
+ * the closest point an ant has not visited yet without scanning all points
+ * The tree is stored implicitly in one array: the point in the middle of a range splits it, on x at even depths and on
+ * y at odd depths, and the two halves of the range are the subtrees. Removed points are tracked in a separate array of
+ * subtree counts owned by the caller, so one tree can serve many ants at the same time
+ */
+public class KdTree {
+    private final double[] xs, ys; // Coordinates of the points, by point index
+    private final int[] points; // Point indices in tree order
+    private final int[] positions; // Tree position of every point
+    private final int[] sizes; // Number of points in the subtree whose middle is at each tree position
+
+    /**
+     * Builds the tree over the given points
+     * @param xs X coordinates of the points
+     * @param ys Y coordinates of the points
+     */
+    public KdTree(double[] xs, double[] ys){
+        this.xs = xs;
+        this.ys = ys;
+        int n = xs.length;
+        points = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = i;
+        }
+        sizes = new int[n];
+        build(0, n, 0);
+        positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[points[i]] = i;
+        }
+    }
+
+    /**
+     * Arranges a range of the point array as a subtree: the median point on the splitting axis is moved to the middle,
+     * and the halves before and after it are arranged the same way on the other axis
+     * @param low First index of the range
+     * @param high Index after the last one of the range
+     * @param depth Depth of the subtree, even depths split on x and odd depths on y
+     */
+    private void build(int low, int high, int depth){
+        if (low >= high){
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        select(low, high, middle, depth % 2 == 0);
+        sizes[middle] = high - low;
+        build(low, middle, depth + 1);
+        build(middle + 1, high, depth + 1);
+    }
+
+    /**
+     * Moves the point that belongs at position k in sorted order of the range there, with smaller or equal points
+     * before it and larger or equal points after it (quickselect)
+     * @param low First index of the range
+     * @param high Index after the last one of the range
+     * @param k The position to fill
+     * @param onX Whether the points are compared by x, otherwise by y
+     */
+    private void select(int low, int high, int k, boolean onX){
+        int left = low;
+        int right = high - 1;
+        while (left < right){
+            double pivot = coordinate(points[(left + right) >>> 1], onX);
+            int i = left;
+            int j = right;
+            while (i <= j){
+                while (coordinate(points[i], onX) < pivot){
+                    i++;
+                }
+                while (coordinate(points[j], onX) > pivot){
+                    j--;
+                }
+                if (i <= j){
+                    int swap = points[i];
+                    points[i] = points[j];
+                    points[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            // Keep only the side that contains position k
+            if (k <= j){
+                right = j;
+            } else if (k >= i){
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param point Index of a point
+     * @param onX Whether the x coordinate is wanted
+     * @return The x or y coordinate of the point
+     */
+    private double coordinate(int point, boolean onX){
+        return onX ? xs[point] : ys[point];
+    }
+
+    /**
+     * @param a Index of a point
+     * @param b Index of another point
+     * @return The squared distance between the points
+     */
+    private double squaredDistance(int a, int b){
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Finds the k closest other points of every point
+     * @param k Number of neighbors wanted, at most the number of points minus one
+     * @return The neighbors of every point by point index, closest first
+     */
+    public int[][] nearestNeighbors(int k){
+        int n = points.length;
+        k = Math.min(k, n - 1);
+        int[][] neighbors = new int[n][k];
+        double[] found = new double[k]; // Squared distances of the neighbors found so far, sorted
+        for (int point = 0; point < n && k > 0; point++) {
+            collect(0, n, 0, point, neighbors[point], found, 0);
+        }
+        return neighbors;
+    }
+
+    /**
+     * Searches a subtree for points closer than the farthest of the closest ones found so far, visiting the half that
+     * contains the point first
+     * @param low First index of the range
+     * @param high Index after the last one of the range
+     * @param depth Depth of the subtree
+     * @param point The point whose neighbors are searched, it is not its own neighbor
+     * @param neighbors The closest points so far, sorted by distance
+     * @param found Squared distances of the closest points so far
+     * @param count Number of closest points so far
+     * @return The new number of closest points
+     */
+    private int collect(int low, int high, int depth, int point, int[] neighbors, double[] found, int count){
+        if (low >= high){
+            return count;
+        }
+        int middle = (low + high) >>> 1;
+        int candidate = points[middle];
+        if (candidate != point){
+            double distance = squaredDistance(point, candidate);
+            if (count < found.length || distance < found[count - 1]){
+                // Insertion into the sorted arrays, the farthest one drops out when they are full
+                int i = Math.min(count, found.length - 1);
+                while (i > 0 && found[i - 1] > distance){
+                    found[i] = found[i - 1];
+                    neighbors[i] = neighbors[i - 1];
+                    i--;
+                }
+                found[i] = distance;
+                neighbors[i] = candidate;
+                count = Math.min(count + 1, found.length);
+            }
+        }
+        double offset = depth % 2 == 0 ? xs[point] - xs[candidate] : ys[point] - ys[candidate];
+        count = collect(offset < 0 ? low : middle + 1, offset < 0 ? middle : high, depth + 1, point, neighbors, found,
+                count);
+        if (count < found.length || offset * offset < found[count - 1]){
+            count = collect(offset < 0 ? middle + 1 : low, offset < 0 ? high : middle, depth + 1, point, neighbors,
+                    found, count);
+        }
+        return count;
+    }
+
+    /**
+     * Marks every point as present again
+     * @param remaining Subtree counts of the caller, at least as long as the number of points
+     */
+    public void reset(int[] remaining){
+        System.arraycopy(sizes, 0, remaining, 0, sizes.length);
+    }
+
+    /**
+     * Marks a present point as removed by decreasing the counts of the subtrees on its way from the root
+     * @param point Index of the point
+     * @param remaining Subtree counts of the caller
+     */
+    public void remove(int point, int[] remaining){
+        int position = positions[point];
+        int low = 0;
+        int high = points.length;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            remaining[middle]--;
+            if (position == middle){
+                return;
+            }
+            if (position < middle){
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the closest point that is not removed
+     * @param point Index of the point to search around
+     * @param remaining Subtree counts of the caller
+     * @return Index of the closest present point, or -1 if all points are removed
+     */
+    public int nearest(int point, int[] remaining){
+        double[] best = {Double.MAX_VALUE, -1}; // Squared distance and tree position of the best point so far
+        nearest(0, points.length, 0, point, remaining, best);
+        return best[1] < 0 ? -1 : points[(int) best[1]];
+    }
+
+    /**
+     * Searches a subtree for a present point closer than the best one so far, skipping subtrees without present points
+     */
+    private void nearest(int low, int high, int depth, int point, int[] remaining, double[] best){
+        int middle = (low + high) >>> 1;
+        if (low >= high || remaining[middle] == 0){
+            return;
+        }
+        int candidate = points[middle];
+        // The middle point is present if its subtree has more present points than its two halves together
+        if (remaining[middle] > count(low, middle, remaining) + count(middle + 1, high, remaining)){
+            double distance = squaredDistance(point, candidate);
+            if (distance < best[0]){
+                best[0] = distance;
+                best[1] = middle;
+            }
+        }
+        double offset = depth % 2 == 0 ? xs[point] - xs[candidate] : ys[point] - ys[candidate];
+        nearest(offset < 0 ? low : middle + 1, offset < 0 ? middle : high, depth + 1, point, remaining, best);
+        if (offset * offset < best[0]){
+            nearest(offset < 0 ? middle + 1 : low, offset < 0 ? high : middle, depth + 1, point, remaining, best);
+        }
+    }
+
+    /**
+     * @return The number of present points in a range
+     */
+    private static int count(int low, int high, int[] remaining){
+        return low < high ? remaining[(low + high) >>> 1] : 0;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * A local search that improves a finished route, for example the route of an ant before it deposits its pheromones
+ * Implementations may be called by several threads at the same time
+ */
+public interface LocalSearch {
+    /**
+     * Improves a route in place
+     * @param tour The route as n + 1 points, starting and ending at the point with index 0, which it still does after
+     *             the improvement
+     * @param length The length of the route
+     * @return The length of the improved route, at most the given length
+     */
+    double improve(int[] tour, double length);
+
+    /**
+     * Combines local searches: they are applied one after the other, again and again as long as a round shortens the
+     * route, so the result is a local optimum of all of them
+     * @param searches The local searches
+     * @return The combined local search
+     */
+    static LocalSearch sequence(LocalSearch... searches){
+        return (tour, length) -> {
+            while (true){
+                double before = length;
+                for (LocalSearch search : searches) {
+                    length = search.improve(tour, length);
+                }
+                if (length >= before - NeighborListSearch.EPSILON){
+                    return length;
+                }
+            }
+        };
+    }
+}
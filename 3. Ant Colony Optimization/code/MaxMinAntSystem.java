@@ -0,0 +1,70 @@
+/**
+ * The Max-Min Ant System (Stutzle and Hoos): only one route deposits pheromones in each iteration, the best route of
+ * the iteration and every few iterations the best route found so far, and all levels are kept between a lower and an
+ * upper bound. The bounds keep every path possible, so the colony concentrates on good routes quickly without
+ * stagnating. The trails start at the upper bound, which favors exploration in the first iterations
+ * The upper bound is the level a path of the best route would reach if it got the deposit in every iteration, the
+ * lower bound follows from the chance P_BEST of building the best route once the levels have converged
+ */
+public class MaxMinAntSystem implements PheromonePolicy {
+    private static final double PERSISTENCE = 0.8; // Part of the pheromones that does not evaporate in an iteration
+    private static final double Q = 0.01; // Deposit constant, as much as all ants of an Ant System iteration together
+    private static final double P_BEST = 0.05; // Chance of building the best route after convergence
+    private static final int GLOBAL_BEST_INTERVAL = 5; // Every this many iterations the best route so far deposits
+
+    @Override
+    public void initialize(PheromoneTrails trails, double greedyLength){
+        trails.reset(maxLevel(greedyLength));
+    }
+
+    @Override
+    public double exploitation(){
+        return 0;
+    }
+
+    @Override
+    public void antFinished(PheromoneTrails trails, int[] tour, double length){
+        // Only the best routes deposit, at the end of the iteration
+    }
+
+    @Override
+    public void iterationFinished(PheromoneTrails trails, int iteration, int[] iterationBest,
+                                  double iterationBestLength, int[] bestTour, double bestLength){
+        trails.evaporate(PERSISTENCE);
+        boolean globalBest = (iteration + 1) % GLOBAL_BEST_INTERVAL == 0;
+        int[] tour = globalBest ? bestTour : iterationBest;
+        double length = globalBest ? bestLength : iterationBestLength;
+        depositAndClamp(trails, tour, length, bestLength);
+    }
+
+    @Override
+    public void migrantArrived(PheromoneTrails trails, int[] tour, double length, double bestLength){
+        depositAndClamp(trails, tour, length, bestLength);
+    }
+
+    /**
+     * Lets a route deposit and keeps all levels between the bounds
+     * @param trails The pheromone trails
+     * @param tour The route that deposits
+     * @param length The length of the route
+     * @param bestLength Length of the best route, which sets the bounds
+     */
+    private static void depositAndClamp(PheromoneTrails trails, int[] tour, double length, double bestLength){
+        for (int i = 0; i < tour.length - 1; i++) {
+            trails.deposit(tour[i], tour[i + 1], Q / length);
+        }
+        double max = maxLevel(bestLength);
+        int n = trails.size();
+        double root = Math.pow(P_BEST, 1.0 / n);
+        double min = max * (1 - root) / (Math.max(n / 2.0 - 1, 1) * root);
+        trails.clamp(Math.min(min, max), max);
+    }
+
+    /**
+     * @param bestLength Length of the best route
+     * @return The upper bound of the pheromone levels
+     */
+    private static double maxLevel(double bestLength){
+        return Q / ((1 - PERSISTENCE) * bestLength);
+    }
+}
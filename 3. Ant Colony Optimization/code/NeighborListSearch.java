@@ -0,0 +1,183 @@
+/**
+ * Base of the local searches that only try moves towards the nearest points of a point (neighbor lists) and use
+ * don't-look bits: a point is only looked at again after a move changed one of its edges. The points still to look at
+ * wait in a queue, and a point whose bit is set is simply not in the queue
+ * Moves are judged by the change of the few edges they replace, so evaluating a move takes constant time. The route is
+ * kept as an array with the position of every point, so the neighbors of a point in the route are found directly
+ * Each thread works on its own buffers, so one search can be shared by the ants of all threads
+ */
+public abstract class NeighborListSearch implements LocalSearch {
+    static final double EPSILON = 1e-10; // Smallest change counted as an improvement, keeps rounding from looping
+    private static final int NEIGHBOR_COUNT = 10; // Nearest points each point tries to connect to
+
+    private final double[] xs, ys; // Coordinates of the points
+    protected final int[][] neighbors; // Nearest points of every point, closest first
+    private final ThreadLocal<Route> routes = new ThreadLocal<>(); // Buffers of each thread
+
+    /**
+     * Builds the neighbor lists of the locations
+     * @param locations All locations with coordinates
+     */
+    protected NeighborListSearch(PointSet locations){
+        xs = locations.xs();
+        ys = locations.ys();
+        neighbors = new KdTree(xs, ys).nearestNeighbors(NEIGHBOR_COUNT);
+    }
+
+    /**
+     * Looks for an improving move that changes an edge of a point, and applies the first one found
+     * @param route The route
+     * @param point The point
+     * @return Whether a move was applied
+     */
+    protected abstract boolean improvePoint(Route route, int point);
+
+    @Override
+    public double improve(int[] tour, double length){
+        int n = xs.length;
+        if (n < 4){
+            return length; // Every route of fewer than four points has the same length
+        }
+        Route route = routes.get();
+        if (route == null || route.points.length != n){
+            route = new Route(n);
+            routes.set(route);
+        }
+        for (int i = 0; i < n; i++) {
+            route.points[i] = tour[i];
+            route.positions[tour[i]] = i;
+            route.push(tour[i]);
+        }
+        boolean improved = false;
+        while (route.queued > 0){
+            if (improvePoint(route, route.pop())){
+                improved = true;
+            }
+        }
+        if (!improved){
+            return length;
+        }
+        // Write the route back starting at point 0; its total is added up once instead of after every move
+        int start = route.positions[0];
+        length = 0;
+        for (int i = 0; i < n; i++) {
+            tour[i] = route.points[(start + i) % n];
+            if (i > 0){
+                length += distance(tour[i - 1], tour[i]);
+            }
+        }
+        tour[n] = 0;
+        return length + distance(tour[n - 1], 0);
+    }
+
+    /**
+     * @param a Index of a point
+     * @param b Index of another point
+     * @return The distance between the points
+     */
+    protected double distance(int a, int b){
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * A route as an array of points with the position of every point, and the queue of points to look at
+     */
+    protected static class Route {
+        final int[] points; // Points in route order, the route returns from the last to the first
+        final int[] positions; // Position of every point in the route
+        private final int[] queue; // Circular queue of the points to look at
+        private final boolean[] inQueue; // Whether a point is in the queue, the inverse of its don't-look bit
+        private int head; // Position of the first point in the queue
+        private int queued; // Number of points in the queue
+
+        /**
+         * @param n Number of points
+         */
+        Route(int n){
+            points = new int[n];
+            positions = new int[n];
+            queue = new int[n];
+            inQueue = new boolean[n];
+        }
+
+        /**
+         * @param point A point
+         * @return The point after it in the route
+         */
+        int next(int point){
+            int position = positions[point] + 1;
+            return points[position == points.length ? 0 : position];
+        }
+
+        /**
+         * @param point A point
+         * @return The point before it in the route
+         */
+        int previous(int point){
+            int position = positions[point] - 1;
+            return points[position < 0 ? points.length - 1 : position];
+        }
+
+        /**
+         * Reverses the section of the route between two positions, or the rest of the route if that is shorter,
+         * which gives the same route in the other direction
+         * @param from Position of the first point of the section
+         * @param to Position of the last point of the section, the section wraps around the end of the array
+         */
+        void reverse(int from, int to){
+            int n = points.length;
+            if (2 * ((to - from + n) % n + 1) > n){
+                int start = (to + 1) % n;
+                to = (from - 1 + n) % n;
+                from = start;
+            }
+            reverseExactly(from, to);
+        }
+
+        /**
+         * Reverses exactly the section of the route between two positions
+         * @param from Position of the first point of the section
+         * @param to Position of the last point of the section, the section wraps around the end of the array
+         */
+        void reverseExactly(int from, int to){
+            int n = points.length;
+            from = (from % n + n) % n;
+            to = (to % n + n) % n;
+            for (int swaps = ((to - from + n) % n + 1) / 2; swaps > 0; swaps--) {
+                int swap = points[from];
+                points[from] = points[to];
+                points[to] = swap;
+                positions[points[from]] = from;
+                positions[points[to]] = to;
+                from = from + 1 == n ? 0 : from + 1;
+                to = to == 0 ? n - 1 : to - 1;
+            }
+        }
+
+        /**
+         * Adds a point to the queue, clearing its don't-look bit
+         * @param point The point
+         */
+        void push(int point){
+            if (!inQueue[point]){
+                inQueue[point] = true;
+                queue[(head + queued) % queue.length] = point;
+                queued++;
+            }
+        }
+
+        /**
+         * Removes the first point from the queue, setting its don't-look bit until it is pushed again
+         * @return The point
+         */
+        private int pop(){
+            int point = queue[head];
+            head = (head + 1) % queue.length;
+            queued--;
+            inQueue[point] = false;
+            return point;
+        }
+    }
+}
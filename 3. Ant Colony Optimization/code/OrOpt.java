@@ -0,0 +1,106 @@
+/**
+ * Or-opt local search: moves a section of one to three consecutive points to another place in the route, in either
+ * direction. A section is only moved next to one of the nearest points of its ends, and only if leaving its place
+ * saves more than the new edge to that neighbor costs
+ */
+public class OrOpt extends NeighborListSearch {
+    private static final int MAX_SECTION = 3; // Longest section that is moved
+
+    /**
+     * @param locations All locations with coordinates
+     */
+    public OrOpt(PointSet locations){
+        super(locations);
+    }
+
+    @Override
+    protected boolean improvePoint(Route route, int first){
+        int n = route.points.length;
+        for (int length = 1; length <= Math.min(MAX_SECTION, n - 3); length++) {
+            int last = route.points[(route.positions[first] + length - 1) % n];
+            int before = route.previous(first);
+            int after = route.next(last);
+            // Gain of taking the section out and joining its neighbors
+            double removal = distance(before, first) + distance(last, after) - distance(before, after);
+            if (removal <= EPSILON){
+                continue;
+            }
+            for (int end = 0; end < 2; end++) {
+                int e = end == 0 ? first : last;
+                for (int c : neighbors[e]) {
+                    if (distance(e, c) >= removal - EPSILON){
+                        break;
+                    }
+                    // Insert between c and the point after it, or between the point before it and c
+                    for (int side = 0; side < 2; side++) {
+                        int u = side == 0 ? c : route.previous(c);
+                        int v = side == 0 ? route.next(c) : c;
+                        if (inSection(route, u, first, length) || inSection(route, v, first, length)){
+                            continue;
+                        }
+                        double uv = distance(u, v);
+                        double forward = distance(u, first) + distance(last, v) - uv - removal;
+                        double backward = distance(u, last) + distance(first, v) - uv - removal;
+                        if (Math.min(forward, backward) < -EPSILON){
+                            move(route, first, last, length, u, v, forward <= backward);
+                            route.push(first);
+                            route.push(last);
+                            route.push(before);
+                            route.push(after);
+                            route.push(u);
+                            route.push(v);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param route The route
+     * @param point A point
+     * @param first First point of the section
+     * @param length Number of points in the section
+     * @return Whether the point is in the section
+     */
+    private static boolean inSection(Route route, int point, int first, int length){
+        int n = route.points.length;
+        return (route.positions[point] - route.positions[first] + n) % n < length;
+    }
+
+    /**
+     * Moves a section between two consecutive points u and v with reversals. The route is S X Y, where S is the
+     * section, X runs from the point after it up to u and Y from v back to the point before it. Reversing S X and then
+     * X gives X S Y with S reversed, which costs the length of X; reversing Y S and then Y does the same at the cost
+     * of Y
+     * @param route The route
+     * @param first First point of the section
+     * @param last Last point of the section
+     * @param length Number of points in the section
+     * @param u The point the section will follow
+     * @param v The point the section will precede
+     * @param forward Whether u connects to the first point of the section, otherwise to the last
+     */
+    private static void move(Route route, int first, int last, int length, int u, int v, boolean forward){
+        int n = route.points.length;
+        int xLength = (route.positions[u] - route.positions[last] + n) % n;
+        int yLength = n - length - xLength;
+        if (xLength <= yLength){
+            int start = route.positions[first];
+            route.reverseExactly(start, route.positions[u]); // X reversed, then S reversed
+            route.reverseExactly(start, start + xLength - 1);
+            if (forward){
+                route.reverseExactly(start + xLength, start + xLength + length - 1);
+            }
+        } else {
+            int start = route.positions[v];
+            route.reverseExactly(start, route.positions[last]); // S reversed, then Y reversed
+            route.reverseExactly(start + length, start + length + yLength - 1);
+            if (forward){
+                route.reverseExactly(start, start + length - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Decides how the ants of the ACO lay down pheromones and how they evaporate: when the trails are started, after each
+ * ant has built its route and at the end of each iteration. A policy also decides how greedy the ants are
+ * Policies keep no state of their own between calls, everything they need is in the trails and the arguments, so one
+ * policy can serve several colonies at the same time
+ */
+public interface PheromonePolicy {
+    /**
+     * Sets the starting pheromone levels
+     * @param trails The pheromone trails
+     * @param greedyLength Length of the nearest neighbor route, an estimate of the length of a good route
+     */
+    void initialize(PheromoneTrails trails, double greedyLength);
+
+    /**
+     * @return Probability that an ant takes the path with the highest weight instead of choosing randomly
+     */
+    double exploitation();
+
+    /**
+     * Called after an ant has built its route, before the next ant of the sequential mode starts
+     * @param trails The pheromone trails
+     * @param tour The route of the ant, starting and ending at the same point
+     * @param length The length of the route
+     */
+    void antFinished(PheromoneTrails trails, int[] tour, double length);
+
+    /**
+     * Called when the best route of another colony of the parallel mode arrives, after the iteration has ended. The
+     * route deposits the way the global update of the policy lets a best route deposit
+     * @param trails The pheromone trails of the receiving colony
+     * @param tour The route of the other colony
+     * @param length The length of the route
+     * @param bestLength The length of the best route of the receiving colony, including the arrived one
+     */
+    void migrantArrived(PheromoneTrails trails, int[] tour, double length, double bestLength);
+
+    /**
+     * Called after all ants of an iteration have finished
+     * @param trails The pheromone trails
+     * @param iteration Index of the iteration
+     * @param iterationBest The best route of the iteration
+     * @param iterationBestLength The length of the best route of the iteration
+     * @param bestTour The best route found so far, including this iteration
+     * @param bestLength The length of the best route found so far
+     */
+    void iterationFinished(PheromoneTrails trails, int iteration, int[] iterationBest, double iterationBestLength,
+                           int[] bestTour, double bestLength);
+}
@@ -0,0 +1,107 @@
+/**
+ * The pheromone levels of the paths between the points, as seen by a pheromone policy. Paths are symmetric: setting
+ * the level from a to b also sets it from b to a. Some implementations only keep pheromones on some paths (candidate
+ * lists); the other paths have level 0 and setting their level has no effect
+ */
+public interface PheromoneTrails {
+    /**
+     * @return Number of points
+     */
+    int size();
+
+    /**
+     * @param from Index of a point
+     * @param to Index of another point
+     * @return The pheromone level of the path between them
+     */
+    double level(int from, int to);
+
+    /**
+     * Sets the pheromone level of the path between two points
+     * @param from Index of a point
+     * @param to Index of another point
+     * @param level The new level
+     */
+    void setLevel(int from, int to, double level);
+
+    /**
+     * Adds pheromones to the path between two points
+     * @param from Index of a point
+     * @param to Index of another point
+     * @param amount Amount of pheromones
+     */
+    default void deposit(int from, int to, double amount){
+        setLevel(from, to, level(from, to) + amount);
+    }
+
+    /**
+     * Multiplies all pheromone levels by a factor
+     * @param persistence The factor, the part of the pheromones that does not evaporate
+     */
+    void evaporate(double persistence);
+
+    /**
+     * Limits all pheromone levels to a range
+     * @param min Lowest level
+     * @param max Highest level
+     */
+    void clamp(double min, double max);
+
+    /**
+     * Sets all pheromone levels to the same value
+     * @param level The level
+     */
+    void reset(double level);
+
+    /**
+     * @return The level given to the last reset
+     */
+    double initialLevel();
+
+    /**
+     * The lambda-branching factor of the trails, which shows how far the pheromones have converged: for every point,
+     * the number of its paths whose level is at least min + lambda * (max - min) of the levels of its paths, averaged
+     * over the points. It is n - 1 while all levels are equal and approaches 2 once the pheromones mark a single route
+     * This reads every level through level(from, to), implementations that store their levels override it
+     * @param lambda Part of the range of levels a path must reach to count, usually 0.05
+     * @return The average number of paths per point that reach the limit
+     */
+    default double branchingFactor(double lambda){
+        int n = size();
+        double[] row = new double[n]; // Levels of the paths of one point
+        long count = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                row[j] = level(i, j);
+            }
+            count += branches(row, n, i, lambda);
+        }
+        return n == 0 ? 0 : (double) count / n;
+    }
+
+    /**
+     * @param levels Levels of the paths of one point
+     * @param count Number of levels
+     * @param self Index of the path of the point to itself, which is left out, or -1
+     * @param lambda Part of the range of levels a path must reach to count
+     * @return Number of paths whose level is at least min + lambda * (max - min) of the levels
+     */
+    static int branches(double[] levels, int count, int self, double lambda){
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (int j = 0; j < count; j++) {
+            if (j != self){
+                min = Math.min(min, levels[j]);
+                max = Math.max(max, levels[j]);
+            }
+        }
+        double limit = min + lambda * (max - min);
+        int branches = 0;
+        for (int j = 0; j < count; j++) {
+            if (j != self && levels[j] >= limit){
+                branches++;
+            }
+        }
+        return branches;
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The coordinates of all points of an instance in two primitive arrays (struct of arrays), the first point being the
+ * Migros store. A point is its index, so a point costs 16 bytes instead of the list of two boxed doubles it used to be
+ * (about 100 bytes), and the coordinates of consecutive points lie next to each other in memory
+ * The arrays are shared with the solvers and must not be changed
+ */
+public final class PointSet {
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22}; // Every power of ten that is exact as a double
+    private static final long EXACT_LIMIT = 1L << 53; // Integers below this are exact as doubles
+
+    private final double[] xs, ys; // Coordinates of the points
+
+    /**
+     * @param xs X coordinates of the points, not copied
+     * @param ys Y coordinates of the points, not copied
+     */
+    public PointSet(double[] xs, double[] ys){
+        if (xs.length != ys.length){
+            throw new IllegalArgumentException("Different numbers of x and y coordinates");
+        }
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Copies the points of a list of coordinate pairs
+     * @param locations List of all locations with coordinates
+     * @return The points
+     */
+    public static PointSet of(ArrayList<ArrayList<Double>> locations){
+        int n = locations.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = locations.get(i).get(0);
+            ys[i] = locations.get(i).get(1);
+        }
+        return new PointSet(xs, ys);
+    }
+
+    /**
+     * Reads an input file with one "x,y" point per line. The whole file is read at once and parsed without creating a
+     * string per line or per number. Numbers with up to 15 digits and no exponent, as in the input files, are parsed
+     * directly and give the same value as Double.parseDouble, all others are passed to it
+     * @param fileName Name of the input file
+     * @return The points in the order of the file
+     * @throws IOException If the file cannot be read
+     * @throws NumberFormatException If a line does not hold two numbers separated by a comma
+     */
+    public static PointSet read(String fileName) throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(fileName));
+        double[] xs = new double[16];
+        double[] ys = new double[16];
+        int n = 0;
+        int[] position = {0}; // Read position, moved along by parseNumber
+        while (true) {
+            skipBlank(data, position);
+            if (position[0] == data.length){
+                break;
+            }
+            if (n == xs.length){
+                xs = Arrays.copyOf(xs, 2 * n);
+                ys = Arrays.copyOf(ys, 2 * n);
+            }
+            xs[n] = parseNumber(data, position);
+            skipSpaces(data, position);
+            if (position[0] == data.length || data[position[0]] != ','){
+                throw new NumberFormatException("Expected a comma after the x coordinate of point " + (n + 1));
+            }
+            position[0]++;
+            skipSpaces(data, position);
+            ys[n] = parseNumber(data, position);
+            n++;
+        }
+        return new PointSet(Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+
+    /**
+     * Parses the number at the read position and moves the position after it
+     * @param data Contents of the file
+     * @param position Read position
+     * @return The number
+     */
+    private static double parseNumber(byte[] data, int[] position){
+        int start = position[0];
+        int i = start;
+        boolean negative = false;
+        if (i < data.length && (data[i] == '-' || data[i] == '+')){
+            negative = data[i] == '-';
+            i++;
+        }
+        long digits = 0;
+        int decimals = 0;
+        int digitCount = 0;
+        boolean point = false;
+        boolean tooLong = false; // Whether the digits may not fit exactly in a double
+        while (i < data.length){
+            byte c = data[i];
+            if (c >= '0' && c <= '9'){
+                if (digits >= EXACT_LIMIT / 10){
+                    tooLong = true;
+                } else {
+                    digits = digits * 10 + (c - '0');
+                    if (point){
+                        decimals++;
+                    }
+                }
+                digitCount++;
+            } else if (c == '.' && !point){
+                point = true;
+            } else {
+                break;
+            }
+            i++;
+        }
+        boolean exponent = i < data.length && (data[i] == 'e' || data[i] == 'E');
+        if (exponent || digitCount == 0 || tooLong || decimals >= POWERS_OF_TEN.length){
+            // Rare formats: let the standard parser handle them
+            while (i < data.length && data[i] != ',' && data[i] != '\n' && data[i] != '\r'){
+                i++;
+            }
+            position[0] = i;
+            return Double.parseDouble(new String(data, start, i - start).trim());
+        }
+        position[0] = i;
+        // Both operands are exact, so the division rounds once, exactly like Double.parseDouble
+        double value = digits / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Moves the read position over spaces, tabs and line breaks
+     * @param data Contents of the file
+     * @param position Read position
+     */
+    private static void skipBlank(byte[] data, int[] position){
+        while (position[0] < data.length && data[position[0]] <= ' '){
+            position[0]++;
+        }
+    }
+
+    /**
+     * Moves the read position over spaces and tabs
+     * @param data Contents of the file
+     * @param position Read position
+     */
+    private static void skipSpaces(byte[] data, int[] position){
+        while (position[0] < data.length && (data[position[0]] == ' ' || data[position[0]] == '\t')){
+            position[0]++;
+        }
+    }
+
+    /**
+     * @return Number of points
+     */
+    public int size(){
+        return xs.length;
+    }
+
+    /**
+     * @param i Index of a point
+     * @return X coordinate of the point
+     */
+    public double x(int i){
+        return xs[i];
+    }
+
+    /**
+     * @param i Index of a point
+     * @return Y coordinate of the point
+     */
+    public double y(int i){
+        return ys[i];
+    }
+
+    /**
+     * @param a Index of a point
+     * @param b Index of another point
+     * @return Distance between the points
+     */
+    public double distance(int a, int b){
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return The x coordinates, shared with this point set
+     */
+    double[] xs(){
+        return xs;
+    }
+
+    /**
+     * @return The y coordinates, shared with this point set
+     */
+    double[] ys(){
+        return ys;
+    }
+}
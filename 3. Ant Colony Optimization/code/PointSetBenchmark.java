@@ -0,0 +1,90 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Compares reading an input file into the previous list of boxed coordinate pairs (Scanner and String.split) with
+ * reading it into a PointSet, by the heap memory the points take and the time the reading takes
+ * Usage: java PointSetBenchmark [number of points]
+ */
+public class PointSetBenchmark {
+
+    /**
+     * Writes random points to a temporary input file, reads it both ways and prints memory and time of each
+     * @param args Number of points, 100,000 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        try {
+            File file = File.createTempFile("points", ".txt");
+            file.deleteOnExit();
+            Random random = new Random(1);
+            try (PrintWriter writer = new PrintWriter(file)) {
+                for (int i = 0; i < n; i++) {
+                    writer.printf(Locale.ROOT, "%.4f,%.4f%n", random.nextDouble(), random.nextDouble());
+                }
+            }
+
+            // Each way runs once for warm-up before it is measured
+            for (int round = 0; round < 2; round++) {
+                long before = usedMemory();
+                long start = System.nanoTime();
+                ArrayList<ArrayList<Double>> lists = readLists(file);
+                double listSeconds = (System.nanoTime() - start) / 1e9;
+                long listBytes = usedMemory() - before;
+
+                before = usedMemory();
+                start = System.nanoTime();
+                PointSet points = PointSet.read(file.getPath());
+                double pointSeconds = (System.nanoTime() - start) / 1e9;
+                long pointBytes = usedMemory() - before;
+
+                if (round == 1){
+                    System.out.printf("%d points (%d and %d read)%n", n, lists.size(), points.size());
+                    System.out.printf("ArrayList<ArrayList<Double>>: %.1f MB, %.0f bytes per point, read in %.3f s%n",
+                            listBytes / 1e6, (double) listBytes / n, listSeconds);
+                    System.out.printf("PointSet:                     %.1f MB, %.0f bytes per point, read in %.3f s%n",
+                            pointBytes / 1e6, (double) pointBytes / n, pointSeconds);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred while writing or reading the file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The previous way of reading the input file
+     * @param file The input file
+     * @return List of all locations with coordinates
+     * @throws IOException If the file cannot be read
+     */
+    private static ArrayList<ArrayList<Double>> readLists(File file) throws IOException {
+        ArrayList<ArrayList<Double>> locations = new ArrayList<>();
+        try (Scanner scanner = new Scanner(file)) {
+            while (scanner.hasNextLine()) {
+                String[] parts = scanner.nextLine().split(",");
+                ArrayList<Double> coordinates = new ArrayList<>();
+                coordinates.add(Double.parseDouble(parts[0]));
+                coordinates.add(Double.parseDouble(parts[1]));
+                locations.add(coordinates);
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * @return Bytes of the heap in use after garbage collection
+     */
+    private static long usedMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.Arrays;
+
+/**
+ * A symmetric n x n matrix in one flat array, in double or in float precision. A packed matrix only stores the lower
+ * triangle with the diagonal row by row: the value at (i, j) with j <= i is at index i * (i + 1) / 2 + j and (j, i) is
+ * the same entry, so it takes half the memory of a full matrix (a quarter in float precision). Row i of a packed matrix
+ * is its stored row followed by column i of the rows below, which is spread over the whole array, so a matrix whose
+ * rows are copied again and again is better stored full, row after row, where setting (i, j) also sets (j, i)
+ * Operations on all entries are single loops over the flat array
+ */
+public abstract class SymmetricMatrix {
+    protected final int n; // Number of rows and columns
+    private final boolean full; // Whether both triangles are stored
+
+    /**
+     * @param n Number of rows and columns
+     * @param full Whether both triangles are stored
+     */
+    private SymmetricMatrix(int n, boolean full){
+        long entries = full ? (long) n * n : (long) n * (n + 1) / 2;
+        if (entries > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("A symmetric matrix of " + n + " rows does not fit in an array");
+        }
+        this.n = n;
+        this.full = full;
+    }
+
+    /**
+     * Creates a packed matrix of zeros
+     * @param n Number of rows and columns
+     * @param singlePrecision Whether the entries are stored as floats instead of doubles
+     * @return The matrix
+     */
+    public static SymmetricMatrix create(int n, boolean singlePrecision){
+        return singlePrecision ? new FloatMatrix(n, false) : new DoubleMatrix(n, false);
+    }
+
+    /**
+     * Creates a full matrix of zeros, for matrices whose rows are copied often
+     * @param n Number of rows and columns
+     * @param singlePrecision Whether the entries are stored as floats instead of doubles
+     * @return The matrix
+     */
+    public static SymmetricMatrix createFull(int n, boolean singlePrecision){
+        return singlePrecision ? new FloatMatrix(n, true) : new DoubleMatrix(n, true);
+    }
+
+    /**
+     * @return Number of rows and columns
+     */
+    public int size(){
+        return n;
+    }
+
+    /**
+     * @return Number of stored entries, n * (n + 1) / 2 for a packed matrix and n * n for a full one
+     */
+    public int entryCount(){
+        return full ? n * n : rowStart(n);
+    }
+
+    /**
+     * @param i A row, at most n
+     * @return Index of the first entry of the row in the flat array
+     */
+    protected int rowStart(int i){
+        return full ? i * n : i * (i + 1) >>> 1; // The product fits in 32 bits without sign for every allowed n
+    }
+
+    /**
+     * @param i A row
+     * @param j A column
+     * @return Index of the entry (i, j) in the flat array, the one of the lower triangle in a packed matrix
+     */
+    protected int index(int i, int j){
+        return full || i >= j ? rowStart(i) + j : rowStart(j) + i;
+    }
+
+    /**
+     * @return Whether both triangles are stored
+     */
+    protected boolean isFull(){
+        return full;
+    }
+
+    /**
+     * @param i A row
+     * @param j A column
+     * @return The entry (i, j), the same as (j, i)
+     */
+    public abstract double get(int i, int j);
+
+    /**
+     * Sets the entries (i, j) and (j, i)
+     * @param i A row
+     * @param j A column
+     * @param value The new value
+     */
+    public abstract void set(int i, int j, double value);
+
+    /**
+     * @param k Index in the flat array
+     * @return The entry at the index
+     */
+    public abstract double getEntry(int k);
+
+    /**
+     * Sets one stored entry, in a full matrix without its mirror entry
+     * @param k Index in the flat array
+     * @param value The new value of the entry at the index
+     */
+    public abstract void setEntry(int k, double value);
+
+    /**
+     * Copies row i of the full matrix with 0 in the skipped columns
+     * @param i A row
+     * @param skip Which columns are written as 0
+     * @param row Array of at least n entries the row is written to
+     * @return Sum of the copied row
+     */
+    public abstract double copyRow(int i, boolean[] skip, double[] row);
+
+    /**
+     * Multiplies all entries by a factor
+     * @param factor The factor
+     */
+    public abstract void scale(double factor);
+
+    /**
+     * Sets all entries to the same value
+     * @param value The value
+     */
+    public abstract void fill(double value);
+
+    /**
+     * Entries stored as doubles
+     */
+    private static final class DoubleMatrix extends SymmetricMatrix {
+        private final double[] values; // Packed lower triangle or full matrix, row by row
+
+        DoubleMatrix(int n, boolean full){
+            super(n, full);
+            values = new double[entryCount()];
+        }
+
+        @Override
+        public double get(int i, int j){
+            return values[index(i, j)];
+        }
+
+        @Override
+        public void set(int i, int j, double value){
+            values[index(i, j)] = value;
+            if (isFull()){
+                values[index(j, i)] = value;
+            }
+        }
+
+        @Override
+        public double getEntry(int k){
+            return values[k];
+        }
+
+        @Override
+        public void setEntry(int k, double value){
+            values[k] = value;
+        }
+
+        @Override
+        public double copyRow(int i, boolean[] skip, double[] row){
+            int start = rowStart(i);
+            double sum = 0;
+            if (isFull()){
+                for (int j = 0; j < n; j++) {
+                    row[j] = skip[j] ? 0 : values[start + j];
+                    sum += row[j];
+                }
+                return sum;
+            }
+            for (int j = 0; j <= i; j++) {
+                row[j] = skip[j] ? 0 : values[start + j];
+                sum += row[j];
+            }
+            // Column i of the rows below, the distance between rows j and j + 1 is j + 1
+            for (int j = i + 1, k = start + 2 * i + 1; j < n; k += j + 1, j++) {
+                row[j] = skip[j] ? 0 : values[k];
+                sum += row[j];
+            }
+            return sum;
+        }
+
+        @Override
+        public void scale(double factor){
+            for (int k = 0; k < values.length; k++) {
+                values[k] *= factor;
+            }
+        }
+
+        @Override
+        public void fill(double value){
+            Arrays.fill(values, value);
+        }
+    }
+
+    /**
+     * Entries stored as floats, rounded when they are set
+     */
+    private static final class FloatMatrix extends SymmetricMatrix {
+        private final float[] values; // Packed lower triangle or full matrix, row by row
+
+        FloatMatrix(int n, boolean full){
+            super(n, full);
+            values = new float[entryCount()];
+        }
+
+        @Override
+        public double get(int i, int j){
+            return values[index(i, j)];
+        }
+
+        @Override
+        public void set(int i, int j, double value){
+            values[index(i, j)] = (float) value;
+            if (isFull()){
+                values[index(j, i)] = (float) value;
+            }
+        }
+
+        @Override
+        public double getEntry(int k){
+            return values[k];
+        }
+
+        @Override
+        public void setEntry(int k, double value){
+            values[k] = (float) value;
+        }
+
+        @Override
+        public double copyRow(int i, boolean[] skip, double[] row){
+            int start = rowStart(i);
+            double sum = 0;
+            if (isFull()){
+                for (int j = 0; j < n; j++) {
+                    row[j] = skip[j] ? 0 : values[start + j];
+                    sum += row[j];
+                }
+                return sum;
+            }
+            for (int j = 0; j <= i; j++) {
+                row[j] = skip[j] ? 0 : values[start + j];
+                sum += row[j];
+            }
+            // Column i of the rows below, the distance between rows j and j + 1 is j + 1
+            for (int j = i + 1, k = start + 2 * i + 1; j < n; k += j + 1, j++) {
+                row[j] = skip[j] ? 0 : values[k];
+                sum += row[j];
+            }
+            return sum;
+        }
+
+        @Override
+        public void scale(double factor){
+            float f = (float) factor;
+            for (int k = 0; k < values.length; k++) {
+                values[k] *= f;
+            }
+        }
+
+        @Override
+        public void fill(double value){
+            Arrays.fill(values, (float) value);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+
+/**
+ * A complete route found by a solver: the indices of the points in visiting order, starting and ending at point 0,
+ * and the length of the route
+ * Instances cannot be changed, so a tour can be shared between threads
+ */
+public final class Tour {
+    private final int[] route; // n + 1 point indices, starting and ending at point 0
+    private final double length; // Total distance of the route
+
+    /**
+     * @param route The point indices in visiting order, starting and ending at point 0, copied
+     * @param length Total distance of the route
+     */
+    public Tour(int[] route, double length){
+        this.route = route.clone();
+        this.length = length;
+    }
+
+    /**
+     * @return A copy of the point indices in visiting order
+     */
+    public int[] route(){
+        return route.clone();
+    }
+
+    /**
+     * @return Total distance of the route
+     */
+    public double length(){
+        return length;
+    }
+
+    /**
+     * @return The point indices in visiting order as a list
+     */
+    public ArrayList<Integer> toList(){
+        ArrayList<Integer> list = new ArrayList<>();
+        for (int point : route) {
+            list.add(point);
+        }
+        return list;
+    }
+
+    /**
+     * Compares the routes of two tours of the same length point by point, so ties between solvers and threads are
+     * always broken the same way
+     * @param other A tour through the same points
+     * @return Whether this route comes first
+     */
+    boolean precedes(Tour other){
+        for (int i = 0; i < route.length; i++) {
+            if (route[i] != other.route[i]){
+                return route[i] < other.route[i];
+            }
+        }
+        return false;
+    }
+}
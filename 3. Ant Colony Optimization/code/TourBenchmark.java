@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Measures how many ant tours per second the tour construction of the ACO builds, comparing the previous construction
+ * (a boxed ArrayList route, a new probability array and two Math.pow calls per candidate at every step, and a copy to
+ * reorder the route) with the current one on int arrays and cached weights
+ * Usage: java TourBenchmark [number of points] [seconds per measurement]
+ */
+public class TourBenchmark {
+    private static final double ALPHA = 0.9; // Same parameters as the default AcoConfig
+    private static final double BETA = 2.3;
+    private static final double INIT_PHEROMONE = 0.1;
+
+    private static final Random random = new Random(1);
+    private static double[][] pheromones;
+    private static double[][] distances;
+
+    /**
+     * Builds tours on random points with both constructions and prints the tours per second of each
+     * @param args Number of points and seconds per measurement, 100 points and 3 seconds by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+        }
+        PointSet locations = new PointSet(xs, ys);
+        AntColonyOptimization solver = new AntColonyOptimization(locations, AcoConfig.defaults(), random);
+        solver.prepare();
+        pheromones = new double[n][n];
+        distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = locations.distance(i, j);
+                pheromones[i][j] = INIT_PHEROMONE;
+            }
+        }
+
+        int[] tour = new int[n + 1];
+        // Each construction runs once for warm-up before it is measured
+        for (int round = 0; round < 2; round++) {
+            double checksum = 0; // Keeps the tours from being optimized away
+            long tours = 0;
+            long start = System.nanoTime();
+            long end = start + (long) (seconds * 1e9);
+            while (System.nanoTime() < end){
+                checksum += calculateRouteDistance(reorder(createRoute(n)));
+                tours++;
+            }
+            double before = tours / ((System.nanoTime() - start) / 1e9);
+
+            tours = 0;
+            start = System.nanoTime();
+            end = start + (long) (seconds * 1e9);
+            while (System.nanoTime() < end){
+                checksum += solver.createRoute(tour, random, 0);
+                tours++;
+            }
+            double after = tours / ((System.nanoTime() - start) / 1e9);
+            if (round == 1){
+                System.out.printf("%d points, checksum %.1f%n", n, checksum);
+                System.out.printf("Before: %.0f tours/sec%n", before);
+                System.out.printf("After:  %.0f tours/sec (%.1fx)%n", after, after / before);
+            }
+        }
+    }
+
+    /**
+     * The previous construction: a route as a list of boxed indices, starting from a random point
+     * @param n Number of points
+     * @return The route, ending at its first point
+     */
+    private static ArrayList<Integer> createRoute(int n){
+        ArrayList<Integer> route = new ArrayList<>();
+        boolean[] visited = new boolean[n];
+        int current = random.nextInt(n);
+        int first = current;
+        route.add(first);
+        visited[first] = true;
+        for (int i = 1; i < n; i++) {
+            current = choosePoint(current, visited);
+            route.add(current);
+            visited[current] = true;
+        }
+        route.add(first);
+        return route;
+    }
+
+    /**
+     * The previous choice rule, with a new probability array and Math.pow for every candidate
+     * @param current The current point index
+     * @param visited Array indicating whether each point has been visited
+     * @return The index of the next point to visit
+     */
+    private static int choosePoint(int current, boolean[] visited){
+        double[] probabilities = new double[visited.length];
+        double sum = 0;
+        for (int i = 0; i < visited.length; i++) {
+            if (!visited[i]){
+                probabilities[i] = Math.pow(pheromones[current][i], ALPHA) / Math.pow(distances[current][i], BETA);
+                sum += probabilities[i];
+            }
+        }
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] /= sum;
+        }
+        double r = random.nextDouble();
+        sum = 0;
+        for (int i = 0; i < probabilities.length; i++){
+            sum += probabilities[i];
+            if (sum >= r){
+                return i;
+            }
+        }
+        return probabilities.length - 1;
+    }
+
+    /**
+     * The previous reordering, copying the route to start from the point with index 0
+     * @param route The original route
+     * @return A reordered route starting and ending at the point with index 0
+     */
+    private static ArrayList<Integer> reorder(ArrayList<Integer> route){
+        int startIndex = route.indexOf(0);
+        if (startIndex == 0){
+            return route;
+        }
+        ArrayList<Integer> reorderedRoute = new ArrayList<>();
+        reorderedRoute.addAll(route.subList(startIndex, route.size()));
+        reorderedRoute.addAll(route.subList(1, startIndex + 1));
+        return reorderedRoute;
+    }
+
+    /**
+     * @param route A route
+     * @return The total distance of the route
+     */
+    private static double calculateRouteDistance(ArrayList<Integer> route){
+        double length = 0;
+        for (int i = 0; i < route.size() - 1; i++) {
+            length += distances[route.get(i)][route.get(i + 1)];
+        }
+        return length;
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Receives the shorter routes of an Ant Colony Optimization run as soon as they are found, so the best route so far
+ * can be used before the run has ended (an anytime run)
+ */
+public interface TourListener {
+    /**
+     * Called on the thread that runs the solver every time it finds a shorter route. A listener given to solvers that
+     * run at the same time is called from all of their threads
+     * @param tour The new best route
+     * @param iteration Index of the iteration it was found in
+     * @param seconds Time since the run started in seconds
+     */
+    void improved(Tour tour, int iteration, double seconds);
+}
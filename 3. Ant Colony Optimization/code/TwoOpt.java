@@ -0,0 +1,48 @@
+/**
+ * 2-opt local search: replaces two edges of the route by two shorter ones by reversing the section between them
+ * Only moves where one new edge goes from a point to one of its nearest points are tried, and the neighbor list is left
+ * as soon as that edge is no shorter than the removed edge of the point, since no later neighbor can give a gain
+ */
+public class TwoOpt extends NeighborListSearch {
+    /**
+     * @param locations All locations with coordinates
+     */
+    public TwoOpt(PointSet locations){
+        super(locations);
+    }
+
+    @Override
+    protected boolean improvePoint(Route route, int a){
+        // Try replacing the edge to the next point, then the edge to the previous point
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int b = forward ? route.next(a) : route.previous(a);
+            double ab = distance(a, b);
+            for (int c : neighbors[a]) {
+                double ac = distance(a, c);
+                if (ac >= ab - EPSILON){
+                    break;
+                }
+                int d = forward ? route.next(c) : route.previous(c);
+                if (c == b || d == a){
+                    continue;
+                }
+                // Edges a-b and c-d become a-c and b-d
+                double delta = ac + distance(b, d) - ab - distance(c, d);
+                if (delta < -EPSILON){
+                    if (forward){
+                        route.reverse(route.positions[b], route.positions[c]); // a [b .. c] d
+                    } else {
+                        route.reverse(route.positions[a], route.positions[d]); // b [a .. d] c
+                    }
+                    route.push(a);
+                    route.push(b);
+                    route.push(c);
+                    route.push(d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}